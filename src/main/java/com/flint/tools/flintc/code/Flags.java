@@ -308,6 +308,12 @@ public class Flags {
      */
     public static final long HAS_RESOURCE = 1L<<56;
 
+    /**
+     * Flag to indicate that the contents of a block were skipped by the parser
+     * in header-only mode, and that the block holds a stub in their place.
+     */
+    public static final long BODY_SKIPPED = 1L<<57;
+
     /** Modifier masks.
      */
     public static final int
@@ -422,7 +428,8 @@ public class Flags {
         SYSTEM_MODULE(Flags.SYSTEM_MODULE),
         DEPRECATED_ANNOTATION(Flags.DEPRECATED_ANNOTATION),
         DEPRECATED_REMOVAL(Flags.DEPRECATED_REMOVAL),
-        HAS_RESOURCE(Flags.HAS_RESOURCE);
+        HAS_RESOURCE(Flags.HAS_RESOURCE),
+        BODY_SKIPPED(Flags.BODY_SKIPPED);
 
         Flag(long flag) {
             this.value = flag;
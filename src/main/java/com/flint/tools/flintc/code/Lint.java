@@ -326,6 +326,12 @@ public class Lint
         return suppressedValues.contains(lc);
     }
 
+    /** Combines a lint with the SuppressWarnings annotations of a symbol. An
+     *  augmentation keeps its state in the fields of the visitor, which is
+     *  shared by all Lint objects of a context, and Lint objects are also used
+     *  by the analyses that run on worker threads; augmentations are therefore
+     *  made one at a time.
+     */
     protected static class AugmentVisitor implements Attribute.Visitor {
         private final Context context;
         private Symtab syms;
@@ -338,7 +344,7 @@ public class Lint
             this.context = context;
         }
 
-        Lint augment(Lint parent, Attribute.Compound attr) {
+        synchronized Lint augment(Lint parent, Attribute.Compound attr) {
             initSyms();
             this.parent = parent;
             lint = null;
@@ -346,7 +352,7 @@ public class Lint
             return (lint == null ? parent : lint);
         }
 
-        Lint augment(Lint parent, JCList<Attribute.Compound> attrs) {
+        synchronized Lint augment(Lint parent, JCList<Attribute.Compound> attrs) {
             initSyms();
             this.parent = parent;
             lint = null;
@@ -261,10 +261,21 @@ public abstract class Scope {
          */
         public abstract Scope.WriteableScope dupUnshared(Symbol newOwner);
 
+        /** Whether create() makes FlatScopes rather than ScopeImpls.
+         */
+        private static volatile boolean flatScopes;
+
+        /** Select the implementation used by create() (-XDflatScopes).
+         *  The choice applies to all compilations in this virtual machine.
+         */
+        public static void useFlatScopes(boolean flat) {
+            flatScopes = flat;
+        }
+
         /** Create a new WriteableScope.
          */
         public static Scope.WriteableScope create(Symbol owner) {
-            return new Scope.ScopeImpl(owner);
+            return flatScopes ? new Scope.FlatScope(owner) : new Scope.ScopeImpl(owner);
         }
 
     }
@@ -686,6 +697,431 @@ public abstract class Scope {
         }
     }
 
+    /** The storage of a FlatScope, shared with the scopes dup'ed from it.
+     *  Entries are numbered in order of entry and kept in parallel arrays;
+     *  the entries with the same name are linked through {@code shadowed},
+     *  latest first. An open-addressing table, hashed on the index of the
+     *  name, maps each name to its latest entry.
+     */
+    private static class FlatTable {
+        /** Slot markers for an unused and for a deleted slot.
+         */
+        private static final int EMPTY = -1;
+        private static final int DELETED = -2;
+
+        /** The hash table's initial size.
+         */
+        private static final int INITIAL_SIZE = 0x10;
+
+        /** The name, symbol and scope of each entry; the symbol of a
+         *  removed entry is null.
+         */
+        Name[] names;
+        Symbol[] syms;
+        FlatScope[] owners;
+
+        /** The previous entry with the same name, or -1.
+         */
+        int[] shadowed;
+
+        /** The number of entries.
+         */
+        int size;
+
+        /** The latest entry for each name, or EMPTY or DELETED.
+         */
+        int[] slots;
+
+        /** Mask for hash codes, always equal to (slots.length - 1).
+         */
+        int hashMask;
+
+        /** The number of slots that are not EMPTY.
+         */
+        int used;
+
+        FlatTable() {
+            names = new Name[4];
+            syms = new Symbol[4];
+            owners = new FlatScope[4];
+            shadowed = new int[4];
+            slots = new int[INITIAL_SIZE];
+            Arrays.fill(slots, EMPTY);
+            hashMask = INITIAL_SIZE - 1;
+        }
+
+        /** Return the slot holding the given name or, if there is none,
+         *  the slot where it would be inserted.
+         */
+        int slot(Name name) {
+            int h = name.getIndex() * 0x9E3779B9;
+            int i = (h ^ (h >>> 16)) & hashMask;
+            int d = -1; // Index of a deleted slot.
+            for (;;) {
+                int id = slots[i];
+                if (id == EMPTY)
+                    return d >= 0 ? d : i;
+                if (id == DELETED) {
+                    if (d < 0)
+                        d = i;
+                } else if (names[id] == name)
+                    return i;
+                i = (i + 1) & hashMask;
+            }
+        }
+
+        /** Return the latest entry with the given name, or -1.
+         */
+        int head(Name name) {
+            int id = slots[slot(name)];
+            return id >= 0 ? id : -1;
+        }
+
+        /** Add an entry, returning its number.
+         */
+        int add(Name name, Symbol sym, FlatScope owner) {
+            if ((used + 1) * 3 > slots.length * 2)
+                rehash();
+            int i = slot(name);
+            int head = slots[i];
+            if (head == EMPTY)
+                used++;
+            int id = size++;
+            if (id == syms.length) {
+                int n = id * 2;
+                names = Arrays.copyOf(names, n);
+                syms = Arrays.copyOf(syms, n);
+                owners = Arrays.copyOf(owners, n);
+                shadowed = Arrays.copyOf(shadowed, n);
+            }
+            names[id] = name;
+            syms[id] = sym;
+            owners[id] = owner;
+            shadowed[id] = head >= 0 ? head : -1;
+            slots[i] = id;
+            return id;
+        }
+
+        /** Remove an entry from the chain of entries with its name.
+         */
+        void unlink(int id) {
+            int i = slot(names[id]);
+            int h = slots[i];
+            if (h == id) {
+                slots[i] = shadowed[id] >= 0 ? shadowed[id] : DELETED;
+            } else {
+                while (shadowed[h] != id)
+                    h = shadowed[h];
+                shadowed[h] = shadowed[id];
+            }
+        }
+
+        /** Drop all entries numbered from the given one on, which must
+         *  already have been unlinked or removed.
+         */
+        void truncate(int newSize) {
+            Arrays.fill(names, newSize, size, null);
+            Arrays.fill(syms, newSize, size, null);
+            Arrays.fill(owners, newSize, size, null);
+            size = newSize;
+        }
+
+        /** Rebuild the hash table, dropping deleted slots, and doubling its
+         *  size if it is more than half full.
+         */
+        private void rehash() {
+            int[] oldSlots = slots;
+            int live = 0;
+            for (int id : oldSlots) {
+                if (id >= 0)
+                    live++;
+            }
+            int length = live * 2 >= oldSlots.length ? oldSlots.length * 2 : oldSlots.length;
+            slots = new int[length];
+            Arrays.fill(slots, EMPTY);
+            hashMask = length - 1;
+            for (int id : oldSlots) {
+                if (id >= 0)
+                    slots[slot(names[id])] = id;
+            }
+            used = live;
+        }
+
+        /** Copy the live entries of the given scopes into a new table.
+         */
+        FlatTable copy(Set<Scope> acceptScopes) {
+            FlatTable t = new FlatTable();
+            for (int id = 0; id < size; id++) {
+                if (syms[id] != null && (acceptScopes == null || acceptScopes.contains(owners[id])))
+                    t.add(names[id], syms[id], owners[id]);
+            }
+            return t;
+        }
+    }
+
+    /** An alternative to ScopeImpl that keeps its symbols in a FlatTable
+     *  rather than in a chain of entry objects; the shadowing of symbols,
+     *  and sharing a table with dup'ed scopes until leave(), work as in
+     *  ScopeImpl. Selected with -XDflatScopes.
+     */
+    private static class FlatScope extends WriteableScope {
+        /** The number of scopes that share this scope's table.
+         */
+        private int shared;
+
+        /** Next enclosing scope (with whom this scope may share a table)
+         */
+        public FlatScope next;
+
+        /** The table holding the scope's entries.
+         */
+        FlatTable table;
+
+        /** The number of this scope's first entry in the table.
+         */
+        final int start;
+
+        /** The number of the entry after this scope's last entry, while
+         *  other scopes share this scope's table.
+         */
+        private int end;
+
+        int removeCount = 0;
+
+        private FlatScope(FlatScope next, Symbol owner, FlatTable table) {
+            super(owner);
+            this.next = next;
+            Assert.check(owner != null);
+            this.table = table;
+            this.start = table.size;
+        }
+
+        public FlatScope(Symbol owner) {
+            this(null, owner, new FlatTable());
+        }
+
+        /** The number of the entry after this scope's last entry.
+         */
+        private int end() {
+            return shared > 0 ? end : table.size;
+        }
+
+        public Scope.WriteableScope dup(Symbol newOwner) {
+            if (shared++ == 0)
+                end = table.size;
+            return new FlatScope(this, newOwner, table);
+        }
+
+        public Scope.WriteableScope dupUnshared(Symbol newOwner) {
+            Set<Scope> acceptScopes = null;
+            if (shared > 0) {
+                //The nested Scopes might have already added something to the table, so all items
+                //that don't originate in this Scope or any of its outer Scopes need to be cleared:
+                acceptScopes = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (FlatScope c = this; c != null; c = c.next) {
+                    acceptScopes.add(c);
+                }
+            }
+            return new FlatScope(this, newOwner, table.copy(acceptScopes));
+        }
+
+        public Scope.WriteableScope leave() {
+            Assert.check(shared == 0);
+            if (table != next.table) return next;
+            for (int id = table.size - 1; id >= start; id--) {
+                Assert.check(table.owners[id] == this, table.syms[id]);
+                if (table.syms[id] != null) {
+                    Assert.check(table.head(table.names[id]) == id, table.syms[id]);
+                    table.unlink(id);
+                }
+            }
+            table.truncate(start);
+            Assert.check(next.shared > 0);
+            next.shared--;
+            return next;
+        }
+
+        public void enter(Symbol sym) {
+            Assert.check(shared == 0);
+            table.add(sym.name, sym, this);
+
+            //notify listeners
+            listeners.symbolAdded(sym, this);
+        }
+
+        public void remove(Symbol sym) {
+            Assert.check(shared == 0);
+            int id = lookup(sym.name, candidate -> candidate == sym);
+            if (id < 0) return;
+
+            table.unlink(id);
+            table.syms[id] = null;
+
+            removeCount++;
+
+            //notify listeners
+            listeners.symbolRemoved(sym, this);
+        }
+
+        public void enterIfAbsent(Symbol sym) {
+            Assert.check(shared == 0);
+            int id = table.head(sym.name);
+            while (id >= 0 && table.owners[id] == this && table.syms[id].kind != sym.kind)
+                id = table.shadowed[id];
+            if (id < 0 || table.owners[id] != this) enter(sym);
+        }
+
+        public boolean includes(Symbol c) {
+            for (int id = table.head(c.name);
+                 id >= 0 && table.owners[id] == this;
+                 id = table.shadowed[id]) {
+                if (table.syms[id] == c) return true;
+            }
+            return false;
+        }
+
+        /** Return the number of the latest entry with the given name that
+         *  is accepted by the filter, in this scope or the scopes sharing
+         *  its table, or -1.
+         */
+        private int lookup(Name name, Filter<Symbol> sf) {
+            int id = table.head(name);
+            if (id >= 0 && sf != null && !sf.accepts(table.syms[id]))
+                id = nextEntry(id, sf);
+            return id;
+        }
+
+        /** Return the number of the next entry shadowed by the given one
+         *  that is accepted by the filter, or -1.
+         */
+        private int nextEntry(int id, Filter<Symbol> sf) {
+            do {
+                id = table.shadowed[id];
+            } while (id >= 0 && sf != null && !sf.accepts(table.syms[id]));
+            return id;
+        }
+
+        public Symbol findFirst(Name name, Filter<Symbol> sf) {
+            int id = lookup(name, sf);
+            return id >= 0 ? table.syms[id] : null;
+        }
+
+        public boolean anyMatch(Filter<Symbol> sf) {
+            return getSymbols(sf, NON_RECURSIVE).iterator().hasNext();
+        }
+
+        public Iterable<Symbol> getSymbols(final Filter<Symbol> sf,
+                                           final Scope.LookupKind lookupKind) {
+            return () -> new Iterator<Symbol>() {
+                private FlatScope currScope = FlatScope.this;
+                private int currId = currScope.end();
+                private Symbol currSym;
+                {
+                    update();
+                }
+
+                public boolean hasNext() {
+                    if (currSym != null && currScope.table.syms[currId] != currSym) {
+                        update(); //skip entry that is no longer in the Scope
+                    }
+                    return currSym != null;
+                }
+
+                public Symbol next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Symbol sym = currSym;
+                    update();
+                    return sym;
+                }
+
+                private void update() {
+                    currSym = null;
+                    while (true) {
+                        FlatTable t = currScope.table;
+                        while (--currId >= currScope.start) {
+                            Symbol sym = t.syms[currId];
+                            if (sym != null && t.owners[currId] == currScope &&
+                                    (sf == null || sf.accepts(sym))) {
+                                currSym = sym;
+                                return;
+                            }
+                        }
+                        if (lookupKind != RECURSIVE || currScope.next == null)
+                            return;
+                        currScope = currScope.next;
+                        currId = currScope.end();
+                    }
+                }
+            };
+        }
+
+        public Iterable<Symbol> getSymbolsByName(final Name name,
+                                                 final Filter<Symbol> sf,
+                                                 final Scope.LookupKind lookupKind) {
+            return () -> new Iterator<Symbol>() {
+               final FlatTable t = table;
+               int currId = lookup(name, sf);
+               int seenRemoveCount = currId >= 0 ? t.owners[currId].removeCount : -1;
+
+               public boolean hasNext() {
+                   if (currId >= 0 &&
+                       (t.syms[currId] == null ||
+                        (seenRemoveCount != t.owners[currId].removeCount &&
+                         !t.owners[currId].includes(t.syms[currId])))) {
+                       currId = nextEntry(currId, sf); //skip entry that is no longer in the Scope
+                   }
+                   return currId >= 0 &&
+                           (lookupKind == RECURSIVE ||
+                            t.owners[currId] == FlatScope.this);
+               }
+               public Symbol next() {
+                   if (!hasNext()) {
+                       throw new NoSuchElementException();
+                   }
+                   Symbol sym = t.syms[currId];
+                   currId = nextEntry(currId, sf);
+                   return sym;
+               }
+               public void remove() {
+                   throw new UnsupportedOperationException();
+               }
+           };
+        }
+
+        public Scope getOrigin(Symbol s) {
+            for (int id = table.head(s.name); id >= 0; id = table.shadowed[id]) {
+                if (table.syms[id] == s) {
+                    return this;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean isStaticallyImported(Symbol s) {
+            return false;
+        }
+
+        public String toString() {
+            StringBuilder result = new StringBuilder();
+            result.append("Scope[");
+            for (FlatScope s = this; s != null ; s = s.next) {
+                if (s != this) result.append(" | ");
+                boolean first = true;
+                for (int id = s.end() - 1; id >= s.start; id--) {
+                    if (s.table.syms[id] == null || s.table.owners[id] != s) continue;
+                    if (!first) result.append(", ");
+                    result.append(s.table.syms[id]);
+                    first = false;
+                }
+            }
+            result.append("]");
+            return result.toString();
+        }
+    }
+
     /** A class for scope entries.
      */
     private static class Entry {
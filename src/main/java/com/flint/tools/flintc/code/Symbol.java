@@ -1218,6 +1218,11 @@ public abstract class Symbol extends AnnoConstruct implements Element {
         /** the annotation metadata attached to this class */
         private AnnotationTypeMetadata annotationTypeMetadata;
 
+        /** the position of this class in the class hierarchy index of Types,
+         *  or null if it has not been indexed
+         */
+        Types.HierarchyNode hierarchyNode;
+
         public ClassSymbol(long flags, Name name, Type type, Symbol owner) {
             super(TYP, flags, name, type, owner);
             this.members_field = null;
@@ -1295,12 +1300,18 @@ public abstract class Symbol extends AnnoConstruct implements Element {
             if (this == base) {
                 return true;
             } else if ((base.flags() & INTERFACE) != 0) {
+                Boolean indexed = types.isIndexedSubClass(this, base, true);
+                if (indexed != null)
+                    return indexed;
                 for (Type t = type; t.hasTag(CLASS); t = types.supertype(t))
                     for (JCList<Type> is = types.interfaces(t);
                          is.nonEmpty();
                          is = is.tail)
                         if (is.head.tsym.isSubClass(base, types)) return true;
             } else {
+                Boolean indexed = types.isIndexedSubClass(this, base, false);
+                if (indexed != null)
+                    return indexed;
                 for (Type t = type; t.hasTag(CLASS); t = types.supertype(t))
                     if (t.tsym == base) return true;
             }
@@ -1452,6 +1463,7 @@ public abstract class Symbol extends AnnoConstruct implements Element {
             erasure_field = null;
             members_field = null;
             flags_field = 0;
+            hierarchyNode = null;
             if (type instanceof ClassType) {
                 ClassType t = (ClassType)type;
                 t.setEnclosingType(Type.noType);
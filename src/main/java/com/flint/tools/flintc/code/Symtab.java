@@ -61,6 +61,7 @@ import com.flint.tools.flintc.util.JavacMessages;
 import com.flint.tools.flintc.util.JCList;
 import com.flint.tools.flintc.util.Name;
 import com.flint.tools.flintc.util.Names;
+import com.flint.tools.flintc.util.Options;
 
 import static com.flint.tools.flintc.code.Flags.*;
 import static com.flint.tools.flintc.code.Kinds.Kind.*;
@@ -352,6 +353,8 @@ public class Symtab {
     protected Symtab(Context context) throws CompletionFailure {
         context.put(symtabKey, this);
 
+        WriteableScope.useFlatScopes(Options.instance(context).isSet("flatScopes"));
+
         names = Names.instance(context);
 
         // Create the unknown type
@@ -1912,6 +1912,9 @@ public abstract class Type extends AnnoConstruct implements TypeMirror {
         /** list of incorporation actions (used by the incorporation engine). */
         public ArrayDeque<IncorporationAction> incorporationActions = new ArrayDeque<>();
 
+        /** position of this variable in the worklist of the incorporation engine, if any. */
+        public int worklistIndex = -1;
+
         /** inference variable bounds */
         protected Map<InferenceBound, JCList<Type>> bounds;
 
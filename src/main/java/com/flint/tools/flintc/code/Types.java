@@ -25,14 +25,14 @@
 
 package com.flint.tools.flintc.code;
 
-import java.lang.ref.SoftReference;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.WeakHashMap;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
 import java.util.stream.Collector;
@@ -99,6 +99,15 @@ public class Types {
 
     public final Warner noWarnings;
 
+    /** The caches of this compilation, with their statistics. */
+    private final Caches caches;
+
+    /** The memo table for isSubtype and asSuper, or null (-XDrelationCache) */
+    final RelationCache relationCache;
+
+    /** The table of canonical class and array types, or null (-XDinternTypes) */
+    final TypeTable typeTable;
+
     // <editor-fold defaultstate="collapsed" desc="Instantiating">
     public static Types instance(Context context) {
         Types instance = context.get(typesKey);
@@ -122,6 +131,30 @@ public class Types {
         diags = JCDiagnostic.Factory.instance(context);
         functionDescriptorLookupError = new FunctionDescriptorLookupError();
         noWarnings = new Warner(null);
+        caches = Caches.instance(context);
+        descCache = new DescriptorCache();
+        implCache = new ImplementationCache();
+        membersCache = new MembersClosureCache();
+        candidatesCache = new CandidatesCache();
+        isDerivedRawCache = caches.newCache("derivedRaw", Caches.Policy.STRONG);
+        closureCache = caches.newCache("closure", Caches.Policy.STRONG);
+        Options options = Options.instance(context);
+        if (options.isSet("relationCache")) {
+            int size = Caches.DEFAULT_SIZE;
+            String value = options.get("relationCache");
+            if (value != null && !value.equals("relationCache")) {
+                try {
+                    size = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    // use the default size
+                }
+            }
+            relationCache = new RelationCache(size);
+        } else {
+            relationCache = null;
+        }
+        typeTable = options.isSet("internTypes") ? new TypeTable() : null;
+        hierarchyIndex = options.isSet("hierarchyIndex");
     }
     // </editor-fold>
 
@@ -356,7 +389,7 @@ public class Types {
      */
     class DescriptorCache {
 
-        private WeakHashMap<TypeSymbol, Entry> _map = new WeakHashMap<>();
+        private Caches.Cache<TypeSymbol, Entry> _map = caches.newCache("descriptor", Caches.Policy.WEAK);
 
         class FunctionDescriptor {
             Symbol descSym;
@@ -396,15 +429,20 @@ public class Types {
         }
 
         FunctionDescriptor get(TypeSymbol origin) throws FunctionDescriptorLookupError {
-            Entry e = _map.get(origin);
+            Entry e = _map.peek(origin);
             CompoundScope members = membersClosure(origin.type, false);
             if (e == null ||
                     !e.matches(members.getMark())) {
+                if (e == null)
+                    _map.stats.miss();
+                else
+                    _map.stats.stale();
                 FunctionDescriptor descRes = findDescriptorInternal(origin, members);
                 _map.put(origin, new Entry(descRes, members.getMark()));
                 return descRes;
             }
             else {
+                _map.stats.hit();
                 return e.cachedDescRes;
             }
         }
@@ -491,7 +529,7 @@ public class Types {
         }
     }
 
-    private DescriptorCache descCache = new DescriptorCache();
+    private final DescriptorCache descCache;
 
     /**
      * Find the method descriptor associated to this class symbol - if the
@@ -752,30 +790,51 @@ public class Types {
     public boolean isSubtype(Type t, Type s, boolean capture) {
         if (t.equalsIgnoreMetadata(s))
             return true;
-        if (s.isPartial())
-            return isSuperType(s, t);
-
-        if (s.isCompound()) {
-            for (Type s2 : interfaces(s).prepend(supertype(s))) {
-                if (!isSubtype(t, s2, capture))
-                    return false;
+        if (relationCache != null && relationGuards == 0 &&
+                isFullyKnown(t) && isFullyKnown(s)) {
+            RelationCache.Key key = relationCache.new Key(capture ?
+                    RelationCache.IS_SUBTYPE_CAPTURE : RelationCache.IS_SUBTYPE, t, s);
+            Object res = relationCache.get(key);
+            if (res == null) {
+                res = isSubtypeUncached(t, s, capture);
+                relationCache.put(key, res);
             }
-            return true;
+            return (Boolean)res;
         }
+        return isSubtypeUncached(t, s, capture);
+    }
+    // where
+        private boolean isSubtypeUncached(Type t, Type s, boolean capture) {
+            if (s.isPartial())
+                return isSuperType(s, t);
 
-        // Generally, if 's' is a lower-bounded type variable, recur on lower bound; but
-        // for inference variables and intersections, we need to keep 's'
-        // (see JLS 4.10.2 for intersections and 18.2.3 for inference vars)
-        if (!t.hasTag(UNDETVAR) && !t.isCompound()) {
-            // TODO: JDK-8039198, bounds checking sometimes passes in a wildcard as s
-            Type lower = cvarLowerBound(wildLowerBound(s));
-            if (s != lower && !lower.hasTag(BOT))
-                return isSubtype(capture ? capture(t) : t, lower, false);
+            if (s.isCompound()) {
+                for (Type s2 : interfaces(s).prepend(supertype(s))) {
+                    if (!isSubtype(t, s2, capture))
+                        return false;
+                }
+                return true;
+            }
+
+            // Generally, if 's' is a lower-bounded type variable, recur on lower bound; but
+            // for inference variables and intersections, we need to keep 's'
+            // (see JLS 4.10.2 for intersections and 18.2.3 for inference vars)
+            if (!t.hasTag(UNDETVAR) && !t.isCompound()) {
+                // TODO: JDK-8039198, bounds checking sometimes passes in a wildcard as s
+                Type lower = cvarLowerBound(wildLowerBound(s));
+                if (s != lower && !lower.hasTag(BOT))
+                    return isSubtype(capture ? capture(t) : t, lower, false);
+            }
+
+            return isSubtype.visit(capture ? capture(t) : t, s);
         }
 
-        return isSubtype.visit(capture ? capture(t) : t, s);
-    }
-    // where
+        /** The number of recursion guards that are active in the type
+         *  relations; results computed while a guard is active may depend on
+         *  it, and are not memoized.
+         */
+        private int relationGuards = 0;
+
         private TypeRelation isSubtype = new TypeRelation()
         {
             @Override
@@ -809,10 +868,12 @@ public class Types {
             private boolean containsTypeRecursive(Type t, Type s) {
                 TypePair pair = new TypePair(t, s);
                 if (cache.add(pair)) {
+                    relationGuards++;
                     try {
                         return containsType(t.getTypeArguments(),
                                             s.getTypeArguments());
                     } finally {
+                        relationGuards--;
                         cache.remove(pair);
                     }
                 } else {
@@ -1191,9 +1252,11 @@ public class Types {
             private boolean checkSameBounds(TypeVar tv1, TypeVar tv2) {
                 TypePair p = new TypePair(tv1, tv2, true);
                 if (cache.add(p)) {
+                    relationGuards++;
                     try {
                         return visit(tv1.getUpperBound(), tv2.getUpperBound());
                     } finally {
+                        relationGuards--;
                         cache.remove(p);
                     }
                 } else {
@@ -1837,6 +1900,439 @@ public class Types {
     }
     // </editor-fold>
 
+    // <editor-fold defaultstate="collapsed" desc="type interning">
+    /**
+     * A table of canonical class and array types, enabled by
+     * {@code -XDinternTypes}. The table only holds types that cannot be
+     * told apart from a structurally equal copy: parameterized class types
+     * and array types without type annotations, whose components are
+     * primitive, wildcard, array or class types of the same kind, so never
+     * type variables (in particular no captured or inference variables)
+     * and never intersection, union or erroneous types. Such types are
+     * immutable, except for fields that are lazily derived from their
+     * structure, so a single instance may stand for all of them.
+     */
+    class TypeTable {
+        private Type[] types = new Type[1024];
+        private int[] hashes = new int[1024];
+        private int size;
+
+        final Caches.Stats stats = caches.stats("types", Caches.Policy.STRONG, 0);
+
+        TypeTable() {
+            stats.setEntries(() -> size);
+        }
+
+        /** Return the canonical instance of a type accepted by
+         *  {@link #canIntern}, entering the type if there is none yet. */
+        synchronized Type intern(Type t) {
+            int hash = structuralHash(t);
+            int mask = types.length - 1;
+            int i = (hash ^ (hash >>> 16)) & mask;
+            for (Type e; (e = types[i]) != null; i = (i + 1) & mask) {
+                if (hashes[i] == hash && sameStructure(e, t)) {
+                    stats.hit();
+                    return e;
+                }
+            }
+            stats.miss();
+            types[i] = t;
+            hashes[i] = hash;
+            if (++size * 2 > types.length)
+                rehash();
+            return t;
+        }
+
+        private void rehash() {
+            Type[] oldTypes = types;
+            int[] oldHashes = hashes;
+            types = new Type[oldTypes.length * 2];
+            hashes = new int[oldTypes.length * 2];
+            int mask = types.length - 1;
+            for (int j = 0; j < oldTypes.length; j++) {
+                if (oldTypes[j] == null)
+                    continue;
+                int hash = oldHashes[j];
+                int i = (hash ^ (hash >>> 16)) & mask;
+                while (types[i] != null)
+                    i = (i + 1) & mask;
+                types[i] = oldTypes[j];
+                hashes[i] = hash;
+            }
+        }
+    }
+
+    /**
+     * Return the canonical instance of a newly built class or array type,
+     * or the type itself if type interning is disabled or the type cannot
+     * be shared.
+     */
+    public Type intern(Type t) {
+        if (typeTable == null || !(t.hasTag(CLASS) || t.hasTag(ARRAY)) || !canIntern(t))
+            return t;
+        if (t.hasTag(CLASS)) {
+            // unparameterized types are shared through their symbol already
+            ClassType ct = (ClassType)t;
+            if (ct.typarams_field.isEmpty() && !ct.getEnclosingType().hasTag(CLASS))
+                return t;
+        }
+        return typeTable.intern(t);
+    }
+
+    /** Is type interning enabled? */
+    public boolean internsTypes() {
+        return typeTable != null;
+    }
+
+    /**
+     * Can the given type be part of an interned type? This must not
+     * complete any symbol, as it is also used while reading class files.
+     */
+    private boolean canIntern(Type t) {
+        if (t.getMetadata() != TypeMetadata.EMPTY)
+            return false;
+        switch (t.getTag()) {
+            case BYTE: case CHAR: case SHORT: case INT: case LONG:
+            case FLOAT: case DOUBLE: case BOOLEAN:
+                return t.constValue() == null;
+            case BOT: case NONE:
+                return true;
+            case ARRAY:
+                if (t.getClass() != ArrayType.class && !t.needsStripping())
+                    return false;
+                return canIntern(((ArrayType)t).elemtype);
+            case WILDCARD:
+                WildcardType w = (WildcardType)t;
+                return w.type == null || canIntern(w.type);
+            case CLASS:
+                if (t.getClass() == ErasedClassType.class)
+                    return true;
+                // anything else, such as the lazily completed types made
+                // by ClassReader, is left alone
+                if (t.getClass() != ClassType.class && !t.needsStripping())
+                    return false;
+                ClassType ct = (ClassType)t;
+                if (ct.typarams_field == null || (ct.tsym.flags_field & COMPOUND) != 0)
+                    return false;
+                for (JCList<Type> l = ct.typarams_field; l.nonEmpty(); l = l.tail) {
+                    if (!canIntern(l.head))
+                        return false;
+                }
+                return canIntern(ct.getEnclosingType());
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Is the given type fully known, so that facts about it, such as its
+     * relations to other types or the members found in it, cannot change?
+     * These are class, array and primitive types, possibly with wildcard
+     * arguments, that contain no type variables (so neither captured nor
+     * inference variables), no erroneous types and no intersections, and
+     * whose classes already have their supertypes set.
+     */
+    public boolean isFullyKnown(Type t) {
+        switch (t.getTag()) {
+            case BYTE: case CHAR: case SHORT: case INT: case LONG:
+            case FLOAT: case DOUBLE: case BOOLEAN: case VOID:
+            case BOT: case NONE:
+                return true;
+            case ARRAY:
+                return isFullyKnown(((ArrayType)t).elemtype);
+            case WILDCARD:
+                WildcardType w = (WildcardType)t;
+                return w.type == null || isFullyKnown(w.type);
+            case CLASS:
+                ClassType ct = (ClassType)t;
+                if (ct.isCompound() || t.tsym.type.isErroneous())
+                    return false;
+                ClassType decl = (ClassType)t.tsym.type;
+                if (decl.supertype_field == null || decl.interfaces_field == null)
+                    return false;
+                for (JCList<Type> l = ct.getTypeArguments(); l.nonEmpty(); l = l.tail) {
+                    if (!isFullyKnown(l.head))
+                        return false;
+                }
+                return isFullyKnown(ct.getEnclosingType());
+            default:
+                return false;
+        }
+    }
+
+    /** Structural hash code of a type accepted by the type table or the
+     *  relation cache, or of a fully known type. */
+    public int structuralHash(Type t) {
+        switch (t.getTag()) {
+            case ARRAY:
+                return 31 * structuralHash(((ArrayType)t).elemtype) + ARRAY.ordinal();
+            case WILDCARD:
+                WildcardType w = (WildcardType)t;
+                return 31 * (w.type == null ? 0 : structuralHash(w.type)) + w.kind.ordinal();
+            case CLASS:
+                // not the identity hash of the symbol, which would change the
+                // identity hashes, and thus the iteration order of hash
+                // tables, seen by the rest of the compiler
+                int h = 31 * structuralHash(t.getEnclosingType()) + t.tsym.flatName().getIndex();
+                for (JCList<Type> l = t.getTypeArguments(); l.nonEmpty(); l = l.tail)
+                    h = 31 * h + structuralHash(l.head);
+                return h;
+            default:
+                return t.getTag().ordinal();
+        }
+    }
+
+    /** Structural equality of types accepted by the type table or the
+     *  relation cache, or of fully known types; unlike isSameType this
+     *  never calls back into the type relations. */
+    public boolean sameStructure(Type t, Type s) {
+        if (t == s)
+            return true;
+        if (t == null || s == null || t.getTag() != s.getTag())
+            return false;
+        switch (t.getTag()) {
+            case ARRAY:
+                return sameStructure(((ArrayType)t).elemtype, ((ArrayType)s).elemtype);
+            case WILDCARD:
+                WildcardType w1 = (WildcardType)t;
+                WildcardType w2 = (WildcardType)s;
+                return w1.kind == w2.kind && w1.bound == w2.bound &&
+                        sameStructure(w1.type, w2.type);
+            case CLASS:
+                if (t.tsym != s.tsym || !sameStructure(t.getEnclosingType(), s.getEnclosingType()))
+                    return false;
+                JCList<Type> ts = t.getTypeArguments();
+                JCList<Type> ss = s.getTypeArguments();
+                while (ts.nonEmpty() && ss.nonEmpty()) {
+                    if (!sameStructure(ts.head, ss.head))
+                        return false;
+                    ts = ts.tail;
+                    ss = ss.tail;
+                }
+                return ts.isEmpty() && ss.isEmpty();
+            default:
+                return true;
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="relation cache">
+    /**
+     * A memo table for isSubtype and asSuper, enabled by
+     * {@code -XDrelationCache[=size]}. Only relations between fully known
+     * types are cached, see {@link #isFullyKnown}. Structurally equal types
+     * share an entry. isSubtype results are neither looked up nor stored
+     * while a recursion guard of the type relations is active, since the
+     * guard may change the answer. The table holds at most the given number
+     * of entries, evicting the least recently used ones.
+     */
+    class RelationCache {
+        /** The kinds of relation cached. */
+        static final int IS_SUBTYPE = 0;
+        static final int IS_SUBTYPE_CAPTURE = 1;
+        static final int AS_SUPER = 2;
+
+        /** Cached result of an asSuper call that returned null. */
+        final Object NONE = new Object();
+
+        private final Caches.Cache<Key, Object> cache;
+
+        RelationCache(int size) {
+            cache = caches.newCache("relation", Caches.Policy.LRU, size);
+        }
+
+        synchronized Object get(Key key) {
+            return cache.get(key);
+        }
+
+        synchronized void put(Key key, Object res) {
+            cache.put(key, res);
+        }
+
+        synchronized int size() {
+            return cache.size();
+        }
+
+        /** The key of a cached relation: the kind of relation and its
+         *  arguments, the types being compared by structure. */
+        class Key {
+            final int kind;
+            final Type t;
+            final Object s;
+            final int hash;
+
+            Key(int kind, Type t, Object s) {
+                this.kind = kind;
+                this.t = t;
+                this.s = s;
+                int h = kind * 31 + structuralHash(t);
+                this.hash = h * 127 + (s instanceof Type ?
+                        structuralHash((Type)s) : ((Symbol)s).flatName().getIndex());
+            }
+
+            @Override
+            public int hashCode() {
+                return hash;
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                if (!(obj instanceof Key))
+                    return false;
+                Key that = (Key)obj;
+                return kind == that.kind && hash == that.hash && sameStructure(t, that.t) &&
+                        (s instanceof Type ? sameStructure((Type)s, (Type)that.s) : s == that.s);
+            }
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="class hierarchy index">
+    /**
+     * The position of a class in the class hierarchy, which answers
+     * {@link ClassSymbol#isSubClass} in constant time for classes and in
+     * logarithmic time for interfaces, enabled by {@code -XDhierarchyIndex}.
+     * The superclasses of a class, and the class itself, are kept in a
+     * display ordered by depth, so that a class at depth d is at index d of
+     * the displays of all its subclasses. Interfaces are numbered as they
+     * are indexed, and every class keeps the sorted numbers of all the
+     * interfaces it implements.
+     *
+     * A class is indexed the first time it is asked about once its
+     * hierarchy can no longer change, that is once it has been completed
+     * and found acyclic, or read from a class file; until then, and for
+     * classes with erroneous supertypes, isSubClass walks the supertypes
+     * as before. All nodes are dropped in each new round of annotation
+     * processing.
+     */
+    public static class HierarchyNode {
+        final int round;
+        final ClassSymbol[] display;
+        final int[] interfaces;
+        /** The number of an interface, or -1 for a class. */
+        final int id;
+
+        HierarchyNode(int round, ClassSymbol[] display, int[] interfaces, int id) {
+            this.round = round;
+            this.display = display;
+            this.interfaces = interfaces;
+            this.id = id;
+        }
+    }
+
+    private static final int[] NO_INTERFACES = new int[0];
+
+    /** Is the class hierarchy index enabled (-XDhierarchyIndex)? */
+    private final boolean hierarchyIndex;
+
+    /** The current round; nodes of earlier rounds are stale. */
+    private int hierarchyRound;
+
+    /** The number of interfaces indexed. */
+    private int interfaceCount;
+
+    /**
+     * Is c a subclass of base, which is an interface if isInterface is
+     * set? Returns null if the hierarchy index cannot tell, in which case
+     * the caller has to find out by itself.
+     */
+    Boolean isIndexedSubClass(ClassSymbol c, Symbol base, boolean isInterface) {
+        if (!hierarchyIndex || !(base instanceof ClassSymbol))
+            return null;
+        HierarchyNode node = hierarchyNode(c);
+        if (node == null)
+            return null;
+        HierarchyNode baseNode = hierarchyNode((ClassSymbol)base);
+        if (baseNode == null)
+            return null;
+        if (isInterface)
+            return baseNode.id >= 0 && Arrays.binarySearch(node.interfaces, baseNode.id) >= 0;
+        int depth = baseNode.display.length - 1;
+        return depth < node.display.length && node.display[depth] == base;
+    }
+
+    /** The node of a class, indexing the class if needed and possible. */
+    private HierarchyNode hierarchyNode(ClassSymbol c) {
+        HierarchyNode node = c.hierarchyNode;
+        if (node != null && node.round == hierarchyRound)
+            return node;
+        if (!hasFixedHierarchy(c))
+            return null;
+        ClassType ct = (ClassType)c.type;
+        ClassSymbol[] display;
+        int[] interfaces = NO_INTERFACES;
+        Type st = ct.supertype_field;
+        if (st.hasTag(CLASS)) {
+            HierarchyNode superNode = hierarchyNode((ClassSymbol)st.tsym);
+            if (superNode == null)
+                return null;
+            display = Arrays.copyOf(superNode.display, superNode.display.length + 1);
+            interfaces = superNode.interfaces;
+        } else if (st.hasTag(NONE)) {
+            display = new ClassSymbol[1];
+        } else {
+            return null;
+        }
+        display[display.length - 1] = c;
+        for (JCList<Type> l = ct.interfaces_field; l.nonEmpty(); l = l.tail) {
+            if (!l.head.hasTag(CLASS))
+                return null;
+            HierarchyNode interfaceNode = hierarchyNode((ClassSymbol)l.head.tsym);
+            if (interfaceNode == null)
+                return null;
+            interfaces = union(interfaces, interfaceNode.interfaces);
+        }
+        int id = -1;
+        if ((c.flags_field & INTERFACE) != 0) {
+            id = interfaceCount++;
+            interfaces = union(interfaces, new int[] { id });
+        }
+        node = new HierarchyNode(hierarchyRound, display, interfaces, id);
+        c.hierarchyNode = node;
+        return node;
+    }
+
+    /** Can the supertypes of a class no longer change? */
+    private boolean hasFixedHierarchy(ClassSymbol c) {
+        if (!c.type.hasTag(CLASS) || !c.isCompleted())
+            return false;
+        ClassType ct = (ClassType)c.type;
+        if (ct.supertype_field == null || ct.interfaces_field == null)
+            return false;
+        return (c.flags_field & ACYCLIC) != 0 ||
+                c.classfile != null && c.classfile.getKind() == JavaFileObject.Kind.CLASS;
+    }
+
+    /** The union of two sorted arrays of interface numbers. */
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0)
+            return b;
+        if (b.length == 0)
+            return a;
+        int[] res = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j])
+                res[k++] = a[i++];
+            else if (a[i] > b[j])
+                res[k++] = b[j++];
+            else {
+                res[k++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length)
+            res[k++] = a[i++];
+        while (j < b.length)
+            res[k++] = b[j++];
+        if (k == a.length)
+            return a;
+        if (k == b.length)
+            return b;
+        return Arrays.copyOf(res, k);
+    }
+    // </editor-fold>
+
     // <editor-fold defaultstate="collapsed" desc="asSuper">
     /**
      * Return the (most specific) base type of t that starts with the
@@ -1862,6 +2358,16 @@ public class Types {
         if (sym.type == syms.objectType) { //optimization
             return syms.objectType;
         }
+        if (relationCache != null && sym.kind == TYP && isFullyKnown(t)) {
+            RelationCache.Key key = relationCache.new Key(RelationCache.AS_SUPER, t, sym);
+            Object res = relationCache.get(key);
+            if (res == null) {
+                Type x = asSuper.visit(t, sym);
+                relationCache.put(key, x != null ? x : relationCache.NONE);
+                return x;
+            }
+            return res != relationCache.NONE ? (Type)res : null;
+        }
         return asSuper.visit(t, sym);
     }
     // where
@@ -2092,7 +2598,7 @@ public class Types {
             return t; /* fast special case */
         } else {
             Type out = erasure.visit(t, recurse);
-            return out;
+            return out != t ? intern(out) : out;
         }
         }
     // where
@@ -2364,7 +2870,7 @@ public class Types {
     // </editor-fold>
 
     // <editor-fold defaultstate="collapsed" desc="isDerivedRaw">
-    Map<Type,Boolean> isDerivedRawCache = new HashMap<>();
+    final Caches.Cache<Type,Boolean> isDerivedRawCache;
 
     public boolean isDerivedRaw(Type t) {
         Boolean result = isDerivedRawCache.get(t);
@@ -2627,49 +3133,81 @@ public class Types {
     }
 
     // <editor-fold defaultstate="collapsed" desc="Determining method implementation in given site">
+    /**
+     * A cache of the implementations of methods in given classes, holding
+     * at most a given number of entries (8192 unless configured otherwise
+     * with {@code -XDcache.implementation=lru:<size>}) and evicting the
+     * least recently used ones. An entry is valid as long as the members
+     * closure of its class has not changed since the entry was made.
+     */
     class ImplementationCache {
 
-        private WeakHashMap<MethodSymbol, SoftReference<Map<TypeSymbol, Entry>>> _map = new WeakHashMap<>();
+        static final int DEFAULT_SIZE = 8192;
+
+        private Caches.Cache<Key, Entry> _map =
+                caches.newCache("implementation", Caches.Policy.LRU, DEFAULT_SIZE);
+
+        class Key {
+            final MethodSymbol ms;
+            final TypeSymbol origin;
+            final boolean checkResult;
+            final Filter<Symbol> implFilter;
+
+            Key(MethodSymbol ms, TypeSymbol origin, boolean checkResult, Filter<Symbol> implFilter) {
+                this.ms = ms;
+                this.origin = origin;
+                this.checkResult = checkResult;
+                this.implFilter = implFilter;
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                if (!(obj instanceof Key))
+                    return false;
+                Key that = (Key)obj;
+                return ms == that.ms &&
+                        origin == that.origin &&
+                        checkResult == that.checkResult &&
+                        implFilter == that.implFilter;
+            }
+
+            @Override
+            public int hashCode() {
+                return 31 * ms.hashCode() + origin.hashCode() + (checkResult ? 1 : 0);
+            }
+        }
 
         class Entry {
             final MethodSymbol cachedImpl;
-            final Filter<Symbol> implFilter;
-            final boolean checkResult;
             final int prevMark;
 
             public Entry(MethodSymbol cachedImpl,
-                    Filter<Symbol> scopeFilter,
-                    boolean checkResult,
                     int prevMark) {
                 this.cachedImpl = cachedImpl;
-                this.implFilter = scopeFilter;
-                this.checkResult = checkResult;
                 this.prevMark = prevMark;
             }
 
-            boolean matches(Filter<Symbol> scopeFilter, boolean checkResult, int mark) {
-                return this.implFilter == scopeFilter &&
-                        this.checkResult == checkResult &&
-                        this.prevMark == mark;
+            boolean matches(int mark) {
+                return this.prevMark == mark;
             }
         }
 
         MethodSymbol get(MethodSymbol ms, TypeSymbol origin, boolean checkResult, Filter<Symbol> implFilter) {
-            SoftReference<Map<TypeSymbol, Entry>> ref_cache = _map.get(ms);
-            Map<TypeSymbol, Entry> cache = ref_cache != null ? ref_cache.get() : null;
-            if (cache == null) {
-                cache = new HashMap<>();
-                _map.put(ms, new SoftReference<>(cache));
-            }
-            Entry e = cache.get(origin);
+            Key key = new Key(ms, origin, checkResult, implFilter);
+            Entry e = _map.peek(key);
             CompoundScope members = membersClosure(origin.type, true);
             if (e == null ||
-                    !e.matches(implFilter, checkResult, members.getMark())) {
+                    !e.matches(members.getMark())) {
+                if (e == null)
+                    _map.stats.miss();
+                else
+                    _map.stats.stale();
                 MethodSymbol impl = implementationInternal(ms, origin, checkResult, implFilter);
-                cache.put(origin, new Entry(impl, implFilter, checkResult, members.getMark()));
+                _map.put(key, new Entry(impl, members.getMark()));
                 return impl;
             }
             else {
+                _map.stats.hit();
                 return e.cachedImpl;
             }
         }
@@ -2697,7 +3235,7 @@ public class Types {
         }
     }
 
-    private ImplementationCache implCache = new ImplementationCache();
+    private final ImplementationCache implCache;
 
     public MethodSymbol implementation(MethodSymbol ms, TypeSymbol origin, boolean checkResult, Filter<Symbol> implFilter) {
         return implCache.get(ms, origin, checkResult, implFilter);
@@ -2707,7 +3245,7 @@ public class Types {
     // <editor-fold defaultstate="collapsed" desc="compute transitive closure of all members in given site">
     class MembersClosureCache extends SimpleVisitor<Scope.CompoundScope, Void> {
 
-        private Map<TypeSymbol, CompoundScope> _map = new HashMap<>();
+        private Caches.Cache<TypeSymbol, CompoundScope> _map = caches.newCache("membersClosure", Caches.Policy.STRONG);
 
         Set<TypeSymbol> seenTypes = new HashSet<>();
 
@@ -2740,6 +3278,83 @@ public class Types {
             }
         }
 
+        /** The members closure of a class, with an index from names to the
+         *  symbols the closure yields for them, so that repeated lookups need
+         *  not walk all the scopes of a deep hierarchy. The index is built on
+         *  demand; the scope listeners bump the mark of the closure whenever
+         *  one of its scopes changes, which invalidates the index.
+         */
+        class ClosureScope extends CompoundScope {
+
+            /** The symbols of the closure with a given name, in order. */
+            private final Map<Name, Symbol[]> byName = new HashMap<>();
+
+            /** All the symbols of the closure, in order, or null. */
+            private Symbol[] all;
+
+            /** The mark of the closure when the index was built. */
+            private int indexMark = -1;
+
+            public ClosureScope(Symbol owner) {
+                super(owner);
+            }
+
+            @Override
+            public Iterable<Symbol> getSymbols(Filter<Symbol> sf, LookupKind lookupKind) {
+                if (lookupKind != LookupKind.RECURSIVE)
+                    return super.getSymbols(sf, lookupKind);
+                return () -> {
+                    validateIndex();
+                    Symbol[] syms = all;
+                    if (syms == null) {
+                        int mark = getMark();
+                        syms = toArray(super.getSymbols(null, lookupKind));
+                        if (mark == getMark())
+                            all = syms;
+                    }
+                    return filter(syms, sf);
+                };
+            }
+
+            @Override
+            public Iterable<Symbol> getSymbolsByName(Name name, Filter<Symbol> sf, LookupKind lookupKind) {
+                if (lookupKind != LookupKind.RECURSIVE)
+                    return super.getSymbolsByName(name, sf, lookupKind);
+                return () -> {
+                    validateIndex();
+                    Symbol[] syms = byName.get(name);
+                    if (syms == null) {
+                        int mark = getMark();
+                        syms = toArray(super.getSymbolsByName(name, null, lookupKind));
+                        if (mark == getMark())
+                            byName.put(name, syms);
+                    }
+                    return filter(syms, sf);
+                };
+            }
+
+            private void validateIndex() {
+                if (indexMark != getMark()) {
+                    byName.clear();
+                    all = null;
+                    indexMark = getMark();
+                }
+            }
+
+            private Symbol[] toArray(Iterable<Symbol> syms) {
+                ListBuffer<Symbol> buf = new ListBuffer<>();
+                for (Symbol sym : syms) {
+                    buf.append(sym);
+                }
+                return buf.toArray(new Symbol[buf.size()]);
+            }
+
+            private Iterator<Symbol> filter(Symbol[] syms, Filter<Symbol> sf) {
+                Iterator<Symbol> it = Arrays.asList(syms).iterator();
+                return sf == null ? it : Iterators.createFilterIterator(it, sf::accepts);
+            }
+        }
+
         CompoundScope nilScope;
 
         /** members closure visitor methods **/
@@ -2764,7 +3379,7 @@ public class Types {
                 ClassSymbol csym = (ClassSymbol)t.tsym;
                 CompoundScope membersClosure = _map.get(csym);
                 if (membersClosure == null) {
-                    membersClosure = new CompoundScope(csym);
+                    membersClosure = new ClosureScope(csym);
                     for (Type i : interfaces(t)) {
                         membersClosure.prependSubScope(visit(i, null));
                     }
@@ -2785,7 +3400,7 @@ public class Types {
         }
     }
 
-    private MembersClosureCache membersCache = new MembersClosureCache();
+    private final MembersClosureCache membersCache;
 
     public CompoundScope membersClosure(Type site, boolean skipInterface) {
         CompoundScope cs = membersCache.visit(site, null);
@@ -2847,7 +3462,7 @@ public class Types {
         }
 
     public class CandidatesCache {
-        public Map<Entry, JCList<MethodSymbol>> cache = new WeakHashMap<>();
+        public Caches.Cache<Entry, JCList<MethodSymbol>> cache = caches.newCache("candidates", Caches.Policy.WEAK);
 
         class Entry {
             Type site;
@@ -2883,7 +3498,7 @@ public class Types {
         }
     }
 
-    public CandidatesCache candidatesCache = new CandidatesCache();
+    public final CandidatesCache candidatesCache;
 
     //where
     public JCList<MethodSymbol> interfaceCandidates(Type site, MethodSymbol ms) {
@@ -2892,7 +3507,7 @@ public class Types {
         if (candidates == null) {
             Filter<Symbol> filter = new MethodFilter(ms, site);
             JCList<MethodSymbol> candidates2 = JCList.nil();
-            for (Symbol s : membersClosure(site, false).getSymbols(filter)) {
+            for (Symbol s : membersClosure(site, false).getSymbolsByName(ms.name, filter)) {
                 if (!site.tsym.isInterface() && !s.owner.isInterface()) {
                     return JCList.of((MethodSymbol)s);
                 } else if (!candidates2.contains(s)) {
@@ -3054,7 +3669,8 @@ public class Types {
         @Override
         public Type visitClassType(ClassType t, Void ignored) {
             if (!t.isCompound()) {
-                return super.visitClassType(t, ignored);
+                Type t1 = super.visitClassType(t, ignored);
+                return t1 != t ? intern(t1) : t;
             } else {
                 Type st = visit(supertype(t));
                 JCList<Type> is = visit(interfaces(t), ignored);
@@ -3065,6 +3681,12 @@ public class Types {
             }
         }
 
+        @Override
+        public Type visitArrayType(ArrayType t, Void ignored) {
+            Type t1 = super.visitArrayType(t, ignored);
+            return t1 != t ? intern(t1) : t;
+        }
+
         @Override
         public Type visitWildcardType(WildcardType t, Void ignored) {
             WildcardType t2 = (WildcardType)super.visitWildcardType(t, ignored);
@@ -3403,7 +4025,7 @@ public class Types {
      * (that is, subclasses come first, arbitrary but fixed
      * otherwise).
      */
-    private Map<Type, JCList<Type>> closureCache = new HashMap<>();
+    private final Caches.Cache<Type, JCList<Type>> closureCache;
 
     /**
      * Returns the closure of a class or interface type.
@@ -4925,5 +5547,6 @@ public class Types {
         implCache._map.clear();
         membersCache._map.clear();
         closureCache.clear();
+        hierarchyRound++;
     }
 }
@@ -97,6 +97,7 @@ public class Annotate {
     private final Lint lint;
     private final Log log;
     private final Names names;
+    private final PhaseProfiler profiler;
     private final Resolve resolve;
     private final TreeMaker make;
     private final Symtab syms;
@@ -119,6 +120,7 @@ public class Annotate {
         lint = Lint.instance(context);
         make = TreeMaker.instance(context);
         names = Names.instance(context);
+        profiler = PhaseProfiler.instance(context);
         resolve = Resolve.instance(context);
         syms = Symtab.instance(context);
         typeEnvs = TypeEnvs.instance(context);
@@ -176,12 +178,30 @@ public class Annotate {
 
     /** Annotate (used for everything else) */
     public void normal(Runnable r) {
-        q.append(r);
+        q.append(profiled(r));
     }
 
     /** Validate, triggers after 'normal' */
     public void validate(Runnable a) {
-        validateQ.append(a);
+        validateQ.append(profiled(a));
+    }
+
+    /** When profiling, charge a queued action to the source file that is
+     *  current when it is queued, rather than to whatever is being compiled
+     *  when the queue is flushed.
+     */
+    private Runnable profiled(Runnable r) {
+        if (!profiler.isEnabled())
+            return r;
+        JavaFileObject file = log.currentSourceFile();
+        return () -> {
+            profiler.start(PhaseProfiler.Phase.ANNOTATE, file);
+            try {
+                r.run();
+            } finally {
+                profiler.end();
+            }
+        };
     }
 
     /** Flush all annotation queues */
@@ -221,11 +241,11 @@ public class Annotate {
 
 
     public void typeAnnotation(Runnable a) {
-        typesQ.append(a);
+        typesQ.append(profiled(a));
     }
 
     public void afterTypes(Runnable a) {
-        afterTypesQ.append(a);
+        afterTypesQ.append(profiled(a));
     }
 
     /**
@@ -1091,6 +1111,15 @@ public class Annotate {
             // separately later.
         }
 
+        @Override
+        public void visitLambda(JCLambda tree) {
+            // Skip speculative copies that still share their body with
+            // the original lambda, which is visited on its own.
+            if (!DeferredAttr.isShared(tree)) {
+                super.visitLambda(tree);
+            }
+        }
+
         @Override
         public void visitNewClass(JCNewClass tree) {
             scan(tree.encl);
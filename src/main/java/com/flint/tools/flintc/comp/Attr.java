@@ -75,6 +75,7 @@ import com.flint.tools.flintc.tree.JCTree.*;
 import com.flint.tools.flintc.tree.JCTree.JCPolyExpression.*;
 import com.flint.tools.flintc.util.*;
 import com.flint.tools.flintc.util.DefinedBy.Api;
+import com.flint.tools.flintc.util.Dependencies.CompletionCause;
 import com.flint.tools.flintc.util.JCDiagnostic.DiagnosticPosition;
 import com.flint.tools.flintc.util.JCDiagnostic.Fragment;
 
@@ -1078,9 +1079,10 @@ public class Attr extends JCTree.Visitor {
                 log.error(tree.pos(), "native.meth.cant.have.body");
             } else {
                 // Add an implicit super() call unless an explicit call to
-                // super(...) or this(...) is given
+                // super(...) or this(...) is given, the body was skipped
                 // or we are compiling class java.lang.Object.
-                if (tree.name == names.init && owner.type != syms.objectType) {
+                if (tree.name == names.init && owner.type != syms.objectType &&
+                        (tree.body.flags & BODY_SKIPPED) == 0) {
                     JCBlock body = tree.body;
                     if (body.stats.isEmpty() ||
                             !TreeInfo.isSelfCall(body.stats.head)) {
@@ -2422,6 +2424,7 @@ public class Attr extends JCTree.Visitor {
      */
     @Override
     public void visitLambda(final JCLambda that) {
+        deferredAttr.unshare(that);
         if (pt().isErroneous() || (pt().hasTag(NONE) && pt() != Type.recoveryType)) {
             if (pt().hasTag(NONE)) {
                 //lambda only allowed in assignment or method invocation/cast context
@@ -2609,6 +2612,10 @@ public class Attr extends JCTree.Visitor {
                         //don't touch stuck expressions!
                         return;
                     }
+                    if (DeferredAttr.isShared(tree)) {
+                        //nor lambdas that are not attributed in this copy
+                        return;
+                    }
                     super.scan(tree);
                 }
             }.scan(tree);
@@ -4467,7 +4474,12 @@ public class Attr extends JCTree.Visitor {
                     env.info.isSerializable = true;
                 }
 
-                attribClassBody(env, c);
+                dependencies.push(c, CompletionCause.ATTRIBUTION);
+                try {
+                    attribClassBody(env, c);
+                } finally {
+                    dependencies.pop();
+                }
 
                 chk.checkDeprecatedAnnotation(env.tree.pos(), c);
                 chk.checkClassOverrideEqualsAndHashIfNeeded(env.tree.pos(), c);
@@ -36,6 +36,7 @@ import com.flint.tools.flintc.tree.TreeCopier;
 import com.flint.tools.flintc.tree.TreeInfo;
 import com.flint.tools.flintc.tree.TreeMaker;
 import com.flint.tools.flintc.tree.TreeScanner;
+import com.flint.source.tree.LambdaExpressionTree;
 import com.flint.source.tree.LambdaExpressionTree.BodyKind;
 import com.flint.source.tree.NewClassTree;
 import com.flint.tools.flintc.code.Type.StructuralTypeMapping;
@@ -102,6 +103,22 @@ public class DeferredAttr extends JCTree.Visitor {
     final Names names;
     final TypeEnvs typeEnvs;
 
+    /** The statistics shared by the speculative caches of all deferred types. */
+    final Caches.Stats speculativeStats;
+
+    /** Do speculative copies of lambda expressions share their parameters and
+     *  body with the original until they are attributed? (-XDlazySpeculativeCopy) */
+    final boolean lazyCopy;
+
+    /** Count the nodes that speculative copies share instead of copying? (-XDtreeCopyStats) */
+    final boolean copyStats;
+
+    /** The number of nodes created by speculative copies. */
+    int copiedNodes;
+
+    /** The number of nodes shared by speculative copies, and never copied. */
+    int sharedNodes;
+
     public static DeferredAttr instance(Context context) {
         DeferredAttr instance = context.get(deferredAttrKey);
         if (instance == null)
@@ -126,6 +143,10 @@ public class DeferredAttr extends JCTree.Visitor {
         names = Names.instance(context);
         stuckTree = make.Ident(names.empty).setType(Type.stuckType);
         typeEnvs = TypeEnvs.instance(context);
+        speculativeStats = Caches.instance(context).stats("speculative", Caches.Policy.WEAK, 0);
+        Options options = Options.instance(context);
+        lazyCopy = options.isSet("lazySpeculativeCopy");
+        copyStats = options.isSet("treeCopyStats");
         emptyDeferredAttrContext =
             new DeferredAttrContext(AttrMode.CHECK, null, MethodResolutionPhase.BOX, infer.emptyContext, null, null) {
                 @Override
@@ -146,6 +167,25 @@ public class DeferredAttr extends JCTree.Visitor {
         // For speculative attribution, skip the class definition in <>.
         treeCopier =
             new TreeCopier<Void>(make) {
+                @Override
+                public <T extends JCTree> T copy(T tree, Void p) {
+                    if (tree != null)
+                        copiedNodes++;
+                    return super.copy(tree, p);
+                }
+
+                @Override @DefinedBy(Api.COMPILER_TREE)
+                public JCTree visitLambdaExpression(LambdaExpressionTree node, Void p) {
+                    if (!lazyCopy)
+                        return super.visitLambdaExpression(node, p);
+                    JCLambda t = (JCLambda) node;
+                    SharedLambda result = new SharedLambda(t.params, t.body);
+                    result.pos = t.pos;
+                    if (copyStats)
+                        sharedNodes += sizeOf(t.params) + sizeOf(t.body);
+                    return result;
+                }
+
                 @Override @DefinedBy(Api.COMPILER_TREE)
                 public JCTree visitNewClass(NewClassTree node, Void p) {
                     JCNewClass t = (JCNewClass) node;
@@ -241,7 +281,7 @@ public class DeferredAttr extends JCTree.Visitor {
          */
         class SpeculativeCache {
 
-            private Map<Symbol, JCList<Entry>> cache = new WeakHashMap<>();
+            private Caches.Cache<Symbol, JCList<Entry>> cache = new Caches.Cache<>(speculativeStats);
 
             class Entry {
                 JCTree speculativeTree;
@@ -262,11 +302,16 @@ public class DeferredAttr extends JCTree.Visitor {
              * and resolution phase
              */
             Entry get(Symbol msym, MethodResolutionPhase phase) {
-                JCList<Entry> entries = cache.get(msym);
-                if (entries == null) return null;
-                for (Entry e : entries) {
-                    if (e.matches(phase)) return e;
+                JCList<Entry> entries = cache.peek(msym);
+                if (entries != null) {
+                    for (Entry e : entries) {
+                        if (e.matches(phase)) {
+                            speculativeStats.hit();
+                            return e;
+                        }
+                    }
                 }
+                speculativeStats.miss();
                 return null;
             }
 
@@ -276,7 +321,7 @@ public class DeferredAttr extends JCTree.Visitor {
              */
             void put(JCTree speculativeTree, ResultInfo resultInfo) {
                 Symbol msym = resultInfo.checkContext.deferredAttrContext().msym;
-                JCList<Entry> entries = cache.get(msym);
+                JCList<Entry> entries = cache.peek(msym);
                 if (entries == null) {
                     entries = JCList.nil();
                 }
@@ -471,6 +516,85 @@ public class DeferredAttr extends JCTree.Visitor {
         }
     }
 
+    /**
+     * A speculative copy of a lambda expression that shares its parameters
+     * and body with the lambda it was copied from (-XDlazySpeculativeCopy).
+     * Lambdas nested in an argument are often only ever attributed through
+     * further copies, e.g. when the enclosing method call is itself checked
+     * speculatively, so copying them eagerly is wasted work. Since Attr writes
+     * its results into the tree, a shared lambda must be given parameters and
+     * a body of its own before it is attributed, see {@link #unshare}; until
+     * then, scanners that write into trees must not descend into it.
+     */
+    static class SharedLambda extends JCLambda {
+        /** Do the parameters and the body still belong to another tree? */
+        boolean shared = true;
+
+        SharedLambda(JCList<JCVariableDecl> params, JCTree body) {
+            super(params, body);
+        }
+    }
+
+    /**
+     * Is the given tree a speculative copy of a lambda expression whose
+     * parameters and body still belong to another tree?
+     */
+    static boolean isShared(JCTree tree) {
+        return tree instanceof SharedLambda && ((SharedLambda)tree).shared;
+    }
+
+    /**
+     * Give a shared speculative copy of a lambda expression parameters and
+     * a body of its own; this must happen before the lambda is attributed.
+     * Lambdas nested in the body are copied lazily in turn.
+     */
+    void unshare(JCLambda tree) {
+        if (isShared(tree)) {
+            SharedLambda lambda = (SharedLambda)tree;
+            if (copyStats)
+                sharedNodes -= sizeOf(lambda.params) + sizeOf(lambda.body);
+            lambda.params = treeCopier.copy(lambda.params);
+            lambda.body = treeCopier.copy(lambda.body);
+            lambda.shared = false;
+        }
+    }
+
+    /** The number of nodes in a tree, not counting those it shares. */
+    private int sizeOf(JCTree tree) {
+        class SizeScanner extends TreeScanner {
+            int size;
+
+            @Override
+            public void scan(JCTree tree) {
+                if (tree != null) {
+                    size++;
+                    if (!isShared(tree))
+                        super.scan(tree);
+                }
+            }
+        }
+        SizeScanner scanner = new SizeScanner();
+        scanner.scan(tree);
+        return scanner.size;
+    }
+
+    private int sizeOf(JCList<? extends JCTree> trees) {
+        int size = 0;
+        for (JCTree tree : trees)
+            size += sizeOf(tree);
+        return size;
+    }
+
+    /**
+     * The number of nodes copied for speculative attribution, and of those
+     * shared instead (counted with -XDtreeCopyStats).
+     */
+    public String copyStatistics() {
+        return copyStats ?
+                copiedNodes + " nodes copied, " + sharedNodes + " nodes shared" :
+                copiedNodes + " nodes copied";
+    }
+
     /**
      * Routine that performs speculative type-checking; the input AST node is
      * cloned (to avoid side-effects cause by Attr) and compiler state is
@@ -514,6 +638,14 @@ public class DeferredAttr extends JCTree.Visitor {
                 this.msym = msym;
             }
 
+            @Override
+            public void visitLambda(JCLambda tree) {
+                //classes in a shared lambda belong to the tree it was copied from
+                if (!isShared(tree)) {
+                    super.visitLambda(tree);
+                }
+            }
+
             @Override
             public void visitClassDef(JCClassDecl tree) {
                 ClassSymbol csym = tree.sym;
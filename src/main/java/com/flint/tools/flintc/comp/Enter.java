@@ -109,6 +109,7 @@ public class Enter extends JCTree.Visitor {
     TypeEnvs typeEnvs;
     Modules modules;
     JCDiagnostic.Factory diags;
+    PhaseProfiler profiler;
 
     private final Todo todo;
 
@@ -133,6 +134,7 @@ public class Enter extends JCTree.Visitor {
         names = Names.instance(context);
         modules = Modules.instance(context);
         diags = JCDiagnostic.Factory.instance(context);
+        profiler = PhaseProfiler.instance(context);
 
         predefClassDef = make.ClassDef(
             make.Modifiers(PUBLIC),
@@ -285,6 +287,9 @@ public class Enter extends JCTree.Visitor {
      */
     Type classEnter(JCTree tree, Env<AttrContext> env) {
         Env<AttrContext> prevEnv = this.env;
+        boolean toplevel = tree.hasTag(JCTree.JCTreeTag.TOPLEVEL);
+        if (toplevel)
+            profiler.start(PhaseProfiler.Phase.ENTER, ((JCCompilationUnit) tree).sourcefile);
         try {
             this.env = env;
             annotate.blockAnnotations();
@@ -295,6 +300,8 @@ public class Enter extends JCTree.Visitor {
         } finally {
             annotate.unblockAnnotations();
             this.env = prevEnv;
+            if (toplevel)
+                profiler.end();
         }
     }
 
@@ -27,6 +27,7 @@
 
 package com.flint.tools.flintc.comp;
 
+import java.util.ArrayDeque;
 import java.util.HashMap;
 
 import com.flint.tools.flintc.code.Lint;
@@ -202,12 +203,21 @@ public class Flow {
     private final Resolve rs;
     private final JCDiagnostic.Factory diags;
     private Env<AttrContext> attrEnv;
-    private Lint lint;
+
+    /** The lint settings of the compilation. Each analyzer keeps its own
+     *  reference, which it augments while it walks the tree, so that the
+     *  analyzers of different classes can run on different threads.
+     */
+    private final Lint lint;
     private final boolean allowImprovedRethrowAnalysis;
     private final boolean allowImprovedCatchAnalysis;
     private final boolean allowEffectivelyFinalInInnerClasses;
     private final boolean enforceThisDotInit;
 
+    /** Should the assignment analyzer recycle the bit sets of exited scopes?
+     */
+    private final boolean poolFlowBits;
+
     public static Flow instance(Context context) {
         Flow instance = context.get(flowKey);
         if (instance == null)
@@ -216,8 +226,27 @@ public class Flow {
     }
 
     public void analyzeTree(Env<AttrContext> env, TreeMaker make) {
+        analyzeReachabilityAndAssignment(env, make);
+        analyzeExceptionsAndCaptures(env, make);
+    }
+
+    /** Check that every statement is reachable and perform definite
+     *  (un)assignment analysis. These analyses only change the trees and the
+     *  local variables of the class being analyzed, and report diagnostics, so
+     *  they can be run for different top-level classes on different threads,
+     *  provided the log buffers their diagnostics.
+     */
+    public void analyzeReachabilityAndAssignment(Env<AttrContext> env, TreeMaker make) {
         new AliveAnalyzer().analyzeTree(env, make);
         new AssignAnalyzer().analyzeTree(env);
+    }
+
+    /** Check that thrown exceptions are caught or declared, and that captured
+     *  variables are effectively final. These analyses use the results of
+     *  {@link #analyzeReachabilityAndAssignment}, and the shared Check, Types
+     *  and Resolve, so they must run on the compiler thread.
+     */
+    public void analyzeExceptionsAndCaptures(Env<AttrContext> env, TreeMaker make) {
         new FlowAnalyzer().analyzeTree(env, make);
         new CaptureAnalyzer().analyzeTree(env, make);
     }
@@ -301,6 +330,7 @@ public class Flow {
         allowImprovedCatchAnalysis = source.allowImprovedCatchAnalysis();
         allowEffectivelyFinalInInnerClasses = source.allowEffectivelyFinalInInnerClasses();
         enforceThisDotInit = source.enforceThisDotInit();
+        poolFlowBits = Options.instance(context).isSet("poolFlowBits");
     }
 
     /**
@@ -420,6 +450,10 @@ public class Flow {
          */
         private boolean alive;
 
+        /** The lint settings of the code being analyzed.
+         */
+        Lint lint = Flow.this.lint;
+
         @Override
         void markDead() {
             alive = false;
@@ -434,8 +468,13 @@ public class Flow {
         void scanDef(JCTree tree) {
             scanStat(tree);
             if (tree != null && tree.hasTag(JCTree.JCTreeTag.BLOCK) && !alive) {
-                log.error(tree.pos(),
-                          "initializer.must.be.able.to.complete.normally");
+                if ((((JCBlock) tree).flags & BODY_SKIPPED) != 0) {
+                    // the stub of a skipped initializer always throws
+                    alive = true;
+                } else {
+                    log.error(tree.pos(),
+                              "initializer.must.be.able.to.complete.normally");
+                }
             }
         }
 
@@ -755,14 +794,11 @@ public class Flow {
         }
         public void analyzeTree(Env<AttrContext> env, JCTree tree, TreeMaker make) {
             try {
-                attrEnv = env;
-                Flow.this.make = make;
                 pendingExits = new ListBuffer<>();
                 alive = true;
                 scan(tree);
             } finally {
                 pendingExits = null;
-                Flow.this.make = null;
             }
         }
     }
@@ -775,6 +811,10 @@ public class Flow {
      */
     class FlowAnalyzer extends BaseAnalyzer<FlowAnalyzer.FlowPendingExit> {
 
+        /** The lint settings of the code being analyzed.
+         */
+        Lint lint = Flow.this.lint;
+
         /** A flag that indicates whether the last statement could
          *  complete normally.
          */
@@ -1458,6 +1498,10 @@ public class Flow {
 
     public class AssignAnalyzer extends BaseAnalyzer<AssignAnalyzer.AssignPendingExit> {
 
+        /** The lint settings of the code being analyzed.
+         */
+        Lint lint = Flow.this.lint;
+
         /** The set of definitely assigned variables.
          */
         final Bits inits;
@@ -1518,21 +1562,23 @@ public class Flow {
 
             final Bits inits;
             final Bits uninits;
-            final Bits exit_inits = new Bits(true);
-            final Bits exit_uninits = new Bits(true);
+            final Bits exit_inits;
+            final Bits exit_uninits;
 
             public AssignPendingExit(JCTree tree, final Bits inits, final Bits uninits) {
                 super(tree);
                 this.inits = inits;
                 this.uninits = uninits;
-                this.exit_inits.assign(inits);
-                this.exit_uninits.assign(uninits);
+                this.exit_inits = copyBits(inits);
+                this.exit_uninits = copyBits(uninits);
             }
 
             @Override
             public void resolveJump() {
                 inits.andSet(exit_inits);
                 uninits.andSet(exit_uninits);
+                // a resolved exit is dropped from the pending list
+                releaseBits(exit_inits, exit_uninits);
             }
         }
 
@@ -1546,6 +1592,55 @@ public class Flow {
             uninitsWhenFalse = new Bits(true);
         }
 
+        /*-------------- Recycling of bit sets ----------------------*/
+
+        /** Bit sets of exited scopes, which can be handed out again; null
+         *  unless -XDpoolFlowBits is set.
+         */
+        private final ArrayDeque<Bits> freeBits = poolFlowBits ? new ArrayDeque<>() : null;
+
+        /** An empty set, to be assigned before it is read.
+         */
+        Bits newBits() {
+            Bits b = freeBits != null ? freeBits.poll() : null;
+            if (b == null) {
+                return new Bits(true);
+            }
+            b.clear();
+            return b;
+        }
+
+        /** A copy of someBits, which reuses the words of a recycled set
+         *  when there is one.
+         */
+        Bits copyBits(Bits someBits) {
+            Bits b = freeBits != null ? freeBits.poll() : null;
+            return b != null ? b.assign(someBits) : new Bits(someBits);
+        }
+
+        /** Hand a set that is no longer referenced back for reuse.
+         */
+        void releaseBits(Bits b) {
+            if (freeBits != null) {
+                freeBits.push(b);
+            }
+        }
+
+        void releaseBits(Bits b1, Bits b2) {
+            releaseBits(b1);
+            releaseBits(b2);
+        }
+
+        /** Is some variable that is DU on entry to a loop no longer DU
+         *  at the end of its body, so that the body needs another pass?
+         */
+        boolean lostUninits(Bits uninitsEntry, Bits uninitsExit) {
+            Bits diff = copyBits(uninitsEntry).diffSet(uninitsExit);
+            boolean lost = diff.nextBit(firstadr) != -1;
+            releaseBits(diff);
+            return lost;
+        }
+
         private boolean isInitialConstructor = false;
 
         @Override
@@ -1864,8 +1959,8 @@ public class Flow {
                     return;
                 }
 
-                final Bits initsPrev = new Bits(inits);
-                final Bits uninitsPrev = new Bits(uninits);
+                final Bits initsPrev = copyBits(inits);
+                final Bits uninitsPrev = copyBits(uninits);
                 int nextadrPrev = nextadr;
                 int firstadrPrev = firstadr;
                 int returnadrPrev = returnadr;
@@ -1921,10 +2016,12 @@ public class Flow {
                                 checkInit(exit.tree.pos(), vardecls[i].sym);
                             }
                         }
+                        releaseBits(exit.exit_inits, exit.exit_uninits);
                     }
                 } finally {
                     inits.assign(initsPrev);
                     uninits.assign(uninitsPrev);
+                    releaseBits(initsPrev, uninitsPrev);
                     nextadr = nextadrPrev;
                     firstadr = firstadrPrev;
                     returnadr = returnadrPrev;
@@ -1969,12 +2066,12 @@ public class Flow {
             ListBuffer<AssignPendingExit> prevPendingExits = pendingExits;
             FlowKind prevFlowKind = flowKind;
             flowKind = FlowKind.NORMAL;
-            final Bits initsSkip = new Bits(true);
-            final Bits uninitsSkip = new Bits(true);
+            final Bits initsSkip = newBits();
+            final Bits uninitsSkip = newBits();
             pendingExits = new ListBuffer<>();
-            int prevErrors = log.nerrors;
+            int prevErrors = log.currentErrorCount();
             do {
-                final Bits uninitsEntry = new Bits(uninits);
+                final Bits uninitsEntry = copyBits(uninits);
                 uninitsEntry.excludeFrom(nextadr);
                 scan(tree.body);
                 resolveContinues(tree);
@@ -1983,17 +2080,21 @@ public class Flow {
                     initsSkip.assign(initsWhenFalse);
                     uninitsSkip.assign(uninitsWhenFalse);
                 }
-                if (log.nerrors !=  prevErrors ||
+                if (log.currentErrorCount() !=  prevErrors ||
                     flowKind.isFinal() ||
-                    new Bits(uninitsEntry).diffSet(uninitsWhenTrue).nextBit(firstadr)==-1)
+                    !lostUninits(uninitsEntry, uninitsWhenTrue)) {
+                    releaseBits(uninitsEntry);
                     break;
+                }
                 inits.assign(initsWhenTrue);
                 uninits.assign(uninitsEntry.andSet(uninitsWhenTrue));
+                releaseBits(uninitsEntry);
                 flowKind = FlowKind.SPECULATIVE_LOOP;
             } while (true);
             flowKind = prevFlowKind;
             inits.assign(initsSkip);
             uninits.assign(uninitsSkip);
+            releaseBits(initsSkip, uninitsSkip);
             resolveBreaks(tree, prevPendingExits);
         }
 
@@ -2001,11 +2102,11 @@ public class Flow {
             ListBuffer<AssignPendingExit> prevPendingExits = pendingExits;
             FlowKind prevFlowKind = flowKind;
             flowKind = FlowKind.NORMAL;
-            final Bits initsSkip = new Bits(true);
-            final Bits uninitsSkip = new Bits(true);
+            final Bits initsSkip = newBits();
+            final Bits uninitsSkip = newBits();
             pendingExits = new ListBuffer<>();
-            int prevErrors = log.nerrors;
-            final Bits uninitsEntry = new Bits(uninits);
+            int prevErrors = log.currentErrorCount();
+            final Bits uninitsEntry = copyBits(uninits);
             uninitsEntry.excludeFrom(nextadr);
             do {
                 scanCond(tree.cond);
@@ -2017,9 +2118,9 @@ public class Flow {
                 uninits.assign(uninitsWhenTrue);
                 scan(tree.body);
                 resolveContinues(tree);
-                if (log.nerrors != prevErrors ||
+                if (log.currentErrorCount() != prevErrors ||
                     flowKind.isFinal() ||
-                    new Bits(uninitsEntry).diffSet(uninits).nextBit(firstadr) == -1) {
+                    !lostUninits(uninitsEntry, uninits)) {
                     break;
                 }
                 uninits.assign(uninitsEntry.andSet(uninits));
@@ -2030,6 +2131,8 @@ public class Flow {
             //branch is not taken AND if it's DA/DU before any break statement
             inits.assign(initsSkip);
             uninits.assign(uninitsSkip);
+            releaseBits(initsSkip, uninitsSkip);
+            releaseBits(uninitsEntry);
             resolveBreaks(tree, prevPendingExits);
         }
 
@@ -2039,12 +2142,12 @@ public class Flow {
             flowKind = FlowKind.NORMAL;
             int nextadrPrev = nextadr;
             scan(tree.init);
-            final Bits initsSkip = new Bits(true);
-            final Bits uninitsSkip = new Bits(true);
+            final Bits initsSkip = newBits();
+            final Bits uninitsSkip = newBits();
             pendingExits = new ListBuffer<>();
-            int prevErrors = log.nerrors;
+            int prevErrors = log.currentErrorCount();
             do {
-                final Bits uninitsEntry = new Bits(uninits);
+                final Bits uninitsEntry = copyBits(uninits);
                 uninitsEntry.excludeFrom(nextadr);
                 if (tree.cond != null) {
                     scanCond(tree.cond);
@@ -2063,11 +2166,14 @@ public class Flow {
                 scan(tree.body);
                 resolveContinues(tree);
                 scan(tree.step);
-                if (log.nerrors != prevErrors ||
+                if (log.currentErrorCount() != prevErrors ||
                     flowKind.isFinal() ||
-                    new Bits(uninitsEntry).diffSet(uninits).nextBit(firstadr) == -1)
+                    !lostUninits(uninitsEntry, uninits)) {
+                    releaseBits(uninitsEntry);
                     break;
+                }
                 uninits.assign(uninitsEntry.andSet(uninits));
+                releaseBits(uninitsEntry);
                 flowKind = FlowKind.SPECULATIVE_LOOP;
             } while (true);
             flowKind = prevFlowKind;
@@ -2075,6 +2181,7 @@ public class Flow {
             //branch is not taken AND if it's DA/DU before any break statement
             inits.assign(initsSkip);
             uninits.assign(uninitsSkip);
+            releaseBits(initsSkip, uninitsSkip);
             resolveBreaks(tree, prevPendingExits);
             nextadr = nextadrPrev;
         }
@@ -2087,27 +2194,31 @@ public class Flow {
             flowKind = FlowKind.NORMAL;
             int nextadrPrev = nextadr;
             scan(tree.expr);
-            final Bits initsStart = new Bits(inits);
-            final Bits uninitsStart = new Bits(uninits);
+            final Bits initsStart = copyBits(inits);
+            final Bits uninitsStart = copyBits(uninits);
 
             letInit(tree.pos(), tree.var.sym);
             pendingExits = new ListBuffer<>();
-            int prevErrors = log.nerrors;
+            int prevErrors = log.currentErrorCount();
             do {
-                final Bits uninitsEntry = new Bits(uninits);
+                final Bits uninitsEntry = copyBits(uninits);
                 uninitsEntry.excludeFrom(nextadr);
                 scan(tree.body);
                 resolveContinues(tree);
-                if (log.nerrors != prevErrors ||
+                if (log.currentErrorCount() != prevErrors ||
                     flowKind.isFinal() ||
-                    new Bits(uninitsEntry).diffSet(uninits).nextBit(firstadr) == -1)
+                    !lostUninits(uninitsEntry, uninits)) {
+                    releaseBits(uninitsEntry);
                     break;
+                }
                 uninits.assign(uninitsEntry.andSet(uninits));
+                releaseBits(uninitsEntry);
                 flowKind = FlowKind.SPECULATIVE_LOOP;
             } while (true);
             flowKind = prevFlowKind;
             inits.assign(initsStart);
             uninits.assign(uninitsStart.andSet(uninits));
+            releaseBits(initsStart, uninitsStart);
             resolveBreaks(tree, prevPendingExits);
             nextadr = nextadrPrev;
         }
@@ -2124,8 +2235,8 @@ public class Flow {
             pendingExits = new ListBuffer<>();
             int nextadrPrev = nextadr;
             scanExpr(tree.selector);
-            final Bits initsSwitch = new Bits(inits);
-            final Bits uninitsSwitch = new Bits(uninits);
+            final Bits initsSwitch = copyBits(inits);
+            final Bits uninitsSwitch = copyBits(uninits);
             boolean hasDefault = false;
             for (JCList<JCCase> l = tree.cases; l.nonEmpty(); l = l.tail) {
                 inits.assign(initsSwitch);
@@ -2151,6 +2262,7 @@ public class Flow {
             if (!hasDefault) {
                 inits.andSet(initsSwitch);
             }
+            releaseBits(initsSwitch, uninitsSwitch);
             resolveBreaks(tree, prevPendingExits);
             nextadr = nextadrPrev;
         }
@@ -2170,10 +2282,10 @@ public class Flow {
 
         public void visitTry(JCTry tree) {
             ListBuffer<JCVariableDecl> resourceVarDecls = new ListBuffer<>();
-            final Bits uninitsTryPrev = new Bits(uninitsTry);
+            final Bits uninitsTryPrev = copyBits(uninitsTry);
             ListBuffer<AssignPendingExit> prevPendingExits = pendingExits;
             pendingExits = new ListBuffer<>();
-            final Bits initsTry = new Bits(inits);
+            final Bits initsTry = copyBits(inits);
             uninitsTry.assign(uninits);
             for (JCTree resource : tree.resources) {
                 if (resource instanceof JCVariableDecl) {
@@ -2189,8 +2301,8 @@ public class Flow {
             }
             scan(tree.body);
             uninitsTry.andSet(uninits);
-            final Bits initsEnd = new Bits(inits);
-            final Bits uninitsEnd = new Bits(uninits);
+            final Bits initsEnd = copyBits(inits);
+            final Bits uninitsEnd = copyBits(uninits);
             int nextadrCatch = nextadr;
 
             if (!resourceVarDecls.isEmpty() &&
@@ -2208,8 +2320,8 @@ public class Flow {
              *  Each one should have the same initial values of inits and
              *  uninits.
              */
-            final Bits initsCatchPrev = new Bits(initsTry);
-            final Bits uninitsCatchPrev = new Bits(uninitsTry);
+            final Bits initsCatchPrev = copyBits(initsTry);
+            final Bits uninitsCatchPrev = copyBits(uninitsTry);
 
             for (JCList<JCCatch> l = tree.catchers; l.nonEmpty(); l = l.tail) {
                 JCVariableDecl param = l.head.param;
@@ -2255,12 +2367,15 @@ public class Flow {
                 while (exits.nonEmpty()) pendingExits.append(exits.next());
             }
             uninitsTry.andSet(uninitsTryPrev).andSet(uninits);
+            releaseBits(initsTry, uninitsTryPrev);
+            releaseBits(initsEnd, uninitsEnd);
+            releaseBits(initsCatchPrev, uninitsCatchPrev);
         }
 
         public void visitConditional(JCConditional tree) {
             scanCond(tree.cond);
-            final Bits initsBeforeElse = new Bits(initsWhenFalse);
-            final Bits uninitsBeforeElse = new Bits(uninitsWhenFalse);
+            final Bits initsBeforeElse = copyBits(initsWhenFalse);
+            final Bits uninitsBeforeElse = copyBits(uninitsWhenFalse);
             inits.assign(initsWhenTrue);
             uninits.assign(uninitsWhenTrue);
             if (tree.truepart.type.hasTag(BOOLEAN) &&
@@ -2270,10 +2385,10 @@ public class Flow {
                 //    v is (un)assigned after b when true and
                 //    v is (un)assigned after c when true
                 scanCond(tree.truepart);
-                final Bits initsAfterThenWhenTrue = new Bits(initsWhenTrue);
-                final Bits initsAfterThenWhenFalse = new Bits(initsWhenFalse);
-                final Bits uninitsAfterThenWhenTrue = new Bits(uninitsWhenTrue);
-                final Bits uninitsAfterThenWhenFalse = new Bits(uninitsWhenFalse);
+                final Bits initsAfterThenWhenTrue = copyBits(initsWhenTrue);
+                final Bits initsAfterThenWhenFalse = copyBits(initsWhenFalse);
+                final Bits uninitsAfterThenWhenTrue = copyBits(uninitsWhenTrue);
+                final Bits uninitsAfterThenWhenFalse = copyBits(uninitsWhenFalse);
                 inits.assign(initsBeforeElse);
                 uninits.assign(uninitsBeforeElse);
                 scanCond(tree.falsepart);
@@ -2281,37 +2396,43 @@ public class Flow {
                 initsWhenFalse.andSet(initsAfterThenWhenFalse);
                 uninitsWhenTrue.andSet(uninitsAfterThenWhenTrue);
                 uninitsWhenFalse.andSet(uninitsAfterThenWhenFalse);
+                releaseBits(initsAfterThenWhenTrue, initsAfterThenWhenFalse);
+                releaseBits(uninitsAfterThenWhenTrue, uninitsAfterThenWhenFalse);
             } else {
                 scanExpr(tree.truepart);
-                final Bits initsAfterThen = new Bits(inits);
-                final Bits uninitsAfterThen = new Bits(uninits);
+                final Bits initsAfterThen = copyBits(inits);
+                final Bits uninitsAfterThen = copyBits(uninits);
                 inits.assign(initsBeforeElse);
                 uninits.assign(uninitsBeforeElse);
                 scanExpr(tree.falsepart);
                 inits.andSet(initsAfterThen);
                 uninits.andSet(uninitsAfterThen);
+                releaseBits(initsAfterThen, uninitsAfterThen);
             }
+            releaseBits(initsBeforeElse, uninitsBeforeElse);
         }
 
         public void visitIf(JCIf tree) {
             scanCond(tree.cond);
-            final Bits initsBeforeElse = new Bits(initsWhenFalse);
-            final Bits uninitsBeforeElse = new Bits(uninitsWhenFalse);
+            final Bits initsBeforeElse = copyBits(initsWhenFalse);
+            final Bits uninitsBeforeElse = copyBits(uninitsWhenFalse);
             inits.assign(initsWhenTrue);
             uninits.assign(uninitsWhenTrue);
             scan(tree.thenpart);
             if (tree.elsepart != null) {
-                final Bits initsAfterThen = new Bits(inits);
-                final Bits uninitsAfterThen = new Bits(uninits);
+                final Bits initsAfterThen = copyBits(inits);
+                final Bits uninitsAfterThen = copyBits(uninits);
                 inits.assign(initsBeforeElse);
                 uninits.assign(uninitsBeforeElse);
                 scan(tree.elsepart);
                 inits.andSet(initsAfterThen);
                 uninits.andSet(uninitsAfterThen);
+                releaseBits(initsAfterThen, uninitsAfterThen);
             } else {
                 inits.andSet(initsBeforeElse);
                 uninits.andSet(uninitsBeforeElse);
             }
+            releaseBits(initsBeforeElse, uninitsBeforeElse);
         }
 
         @Override
@@ -2348,8 +2469,8 @@ public class Flow {
 
         @Override
         public void visitLambda(JCLambda tree) {
-            final Bits prevUninits = new Bits(uninits);
-            final Bits prevInits = new Bits(inits);
+            final Bits prevUninits = copyBits(uninits);
+            final Bits prevInits = copyBits(inits);
             int returnadrPrev = returnadr;
             int nextadrPrev = nextadr;
             ListBuffer<AssignPendingExit> prevPending = pendingExits;
@@ -2372,6 +2493,7 @@ public class Flow {
                 returnadr = returnadrPrev;
                 uninits.assign(prevUninits);
                 inits.assign(prevInits);
+                releaseBits(prevInits, prevUninits);
                 pendingExits = prevPending;
                 nextadr = nextadrPrev;
             }
@@ -2383,8 +2505,8 @@ public class Flow {
         }
 
         public void visitAssert(JCAssert tree) {
-            final Bits initsExit = new Bits(inits);
-            final Bits uninitsExit = new Bits(uninits);
+            final Bits initsExit = copyBits(inits);
+            final Bits uninitsExit = copyBits(uninits);
             scanCond(tree.cond);
             uninitsExit.andSet(uninitsWhenTrue);
             if (tree.detail != null) {
@@ -2394,6 +2516,7 @@ public class Flow {
             }
             inits.assign(initsExit);
             uninits.assign(uninitsExit);
+            releaseBits(initsExit, uninitsExit);
         }
 
         public void visitAssign(JCAssign tree) {
@@ -2437,12 +2560,13 @@ public class Flow {
             switch (tree.getTag()) {
             case NOT:
                 scanCond(tree.arg);
-                final Bits t = new Bits(initsWhenFalse);
+                final Bits t = copyBits(initsWhenFalse);
                 initsWhenFalse.assign(initsWhenTrue);
                 initsWhenTrue.assign(t);
                 t.assign(uninitsWhenFalse);
                 uninitsWhenFalse.assign(uninitsWhenTrue);
                 uninitsWhenTrue.assign(t);
+                releaseBits(t);
                 break;
             case PREINC: case POSTINC:
             case PREDEC: case POSTDEC:
@@ -2458,23 +2582,25 @@ public class Flow {
             switch (tree.getTag()) {
             case AND:
                 scanCond(tree.lhs);
-                final Bits initsWhenFalseLeft = new Bits(initsWhenFalse);
-                final Bits uninitsWhenFalseLeft = new Bits(uninitsWhenFalse);
+                final Bits initsWhenFalseLeft = copyBits(initsWhenFalse);
+                final Bits uninitsWhenFalseLeft = copyBits(uninitsWhenFalse);
                 inits.assign(initsWhenTrue);
                 uninits.assign(uninitsWhenTrue);
                 scanCond(tree.rhs);
                 initsWhenFalse.andSet(initsWhenFalseLeft);
                 uninitsWhenFalse.andSet(uninitsWhenFalseLeft);
+                releaseBits(initsWhenFalseLeft, uninitsWhenFalseLeft);
                 break;
             case OR:
                 scanCond(tree.lhs);
-                final Bits initsWhenTrueLeft = new Bits(initsWhenTrue);
-                final Bits uninitsWhenTrueLeft = new Bits(uninitsWhenTrue);
+                final Bits initsWhenTrueLeft = copyBits(initsWhenTrue);
+                final Bits uninitsWhenTrueLeft = copyBits(uninitsWhenTrue);
                 inits.assign(initsWhenFalse);
                 uninits.assign(uninitsWhenFalse);
                 scanCond(tree.rhs);
                 initsWhenTrue.andSet(initsWhenTrueLeft);
                 uninitsWhenTrue.andSet(uninitsWhenTrueLeft);
+                releaseBits(initsWhenTrueLeft, uninitsWhenTrueLeft);
                 break;
             default:
                 scanExpr(tree.lhs);
@@ -58,6 +58,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
@@ -92,6 +93,9 @@ public class Infer {
     /** should the graph solver be used? */
     boolean allowGraphInference;
 
+    /** should incorporation be driven by a worklist? (-XDincorporationWorklist) */
+    final boolean useIncorporationWorklist;
+
     /**
      * folder in which the inference dependency graphs should be written.
      */
@@ -102,6 +106,9 @@ public class Infer {
      */
     private JCList<String> pendingGraphs;
 
+    /** The cache of inferred method instantiations, or null (-XDinferenceCache) */
+    final SolutionCache solutionCache;
+
     public static Infer instance(Context context) {
         Infer instance = context.get(inferKey);
         if (instance == null)
@@ -122,8 +129,26 @@ public class Infer {
         Options options = Options.instance(context);
         allowGraphInference = Source.instance(context).allowGraphInference()
                 && options.isUnset("useLegacyInference");
+        useIncorporationWorklist = options.isSet("incorporationWorklist");
+        worklistEngine = useIncorporationWorklist ? new WorklistIncorporationEngine() : null;
         dependenciesFolder = options.get("debug.dumpInferenceGraphsTo");
         pendingGraphs = JCList.nil();
+        incorporationCache = Caches.instance(context).newCache("incorporation", Caches.Policy.STRONG);
+        if (options.isSet("inferenceCache") && dependenciesFolder == null &&
+                VerboseResolutionMode.getVerboseResolutionMode(options).isEmpty()) {
+            int size = Caches.DEFAULT_SIZE;
+            String value = options.get("inferenceCache");
+            if (value != null && !value.equals("inferenceCache")) {
+                try {
+                    size = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    // use the default size
+                }
+            }
+            solutionCache = new SolutionCache(Caches.instance(context), size);
+        } else {
+            solutionCache = null;
+        }
 
         emptyContext = new InferenceContext(this, JCList.nil());
     }
@@ -169,6 +194,38 @@ public class Infer {
     protected final InferenceException inferenceException;
 
     // <editor-fold defaultstate="collapsed" desc="Inference routines">
+    /**
+     * Instantiate a generic method type, a member of the given site; if the
+     * instantiation is known from an earlier call with the same inputs, it
+     * is reused, see {@link SolutionCache}.
+     */
+    Type instantiateMethod( Env<AttrContext> env,
+                            Type site,
+                            JCList<Type> tvars,
+                            MethodType mt,
+                            Attr.ResultInfo resultInfo,
+                            MethodSymbol msym,
+                            JCList<Type> argtypes,
+                            boolean allowBoxing,
+                            boolean useVarargs,
+                            Resolve.MethodResolutionContext resolveContext,
+                            Warner warn) throws InferenceException {
+        SolutionCache.Key key = null;
+        if (solutionCache != null &&
+                solutionCache.accepts(site, resultInfo, argtypes, resolveContext)) {
+            key = solutionCache.new Key(env, site, msym, resultInfo, argtypes,
+                    allowBoxing, useVarargs);
+            Type cached = solutionCache.cache.get(key);
+            if (cached != null)
+                return cached;
+        }
+        Type owntype = instantiateMethod(env, tvars, mt, resultInfo, msym, argtypes,
+                allowBoxing, useVarargs, resolveContext, warn);
+        if (key != null && !warn.hasAnyLint() && solutionCache.isSolved(owntype))
+            solutionCache.cache.put(key, owntype);
+        return owntype;
+    }
+
     /**
      * Main inference entry point - instantiate a generic method type
      * using given argument types and (possibly) an expected target-type.
@@ -705,6 +762,130 @@ public class Infer {
     }
     // </editor-fold>
 
+    // <editor-fold defaultstate="collapsed" desc="Inference cache">
+    /**
+     * A cache of completed method instantiations (-XDinferenceCache[=size]).
+     * Generated and stream-heavy code instantiates the same generic methods
+     * with the same arguments over and over, e.g. {@code Collections.emptyList()}
+     * assigned to a {@code List<String>}; solving the inference graph again
+     * each time yields the same type. A solution is reused only when it
+     * depends on nothing but the key: the site, the arguments and the target
+     * are fully known (in particular, they contain no captured variables,
+     * deferred types or inference variables), the arguments are checked by the
+     * standard method check, and the target, if any, is checked by the basic
+     * assignment context, so that no inference context is propagated outwards.
+     * Only solutions that are fully known themselves, and that did not give
+     * rise to any warning, are kept; failures are never cached, as they must
+     * be reported against the tree at hand. The cache uses an LRU policy.
+     */
+    class SolutionCache {
+        final Caches.Cache<Key, Type> cache;
+
+        SolutionCache(Caches caches, int size) {
+            cache = caches.newCache("inference", Caches.Policy.LRU, size);
+        }
+
+        /** Can the instantiation of a method with the given inputs be cached? */
+        boolean accepts(Type site, Attr.ResultInfo resultInfo,
+                        JCList<Type> argtypes, Resolve.MethodResolutionContext resolveContext) {
+            if (resolveContext == null ||
+                    resolveContext.methodCheck != rs.resolveMethodCheck ||
+                    !site.hasTag(CLASS) && !site.hasTag(ARRAY) ||
+                    !types.isFullyKnown(site))
+                return false;
+            if (resultInfo != null &&
+                    (resultInfo.pt == anyPoly ||
+                     resultInfo.checkContext != chk.basicHandler ||
+                     !types.isFullyKnown(resultInfo.pt)))
+                return false;
+            for (JCList<Type> l = argtypes; l.nonEmpty(); l = l.tail) {
+                if (!types.isFullyKnown(l.head))
+                    return false;
+            }
+            return true;
+        }
+
+        /** Is the given method type fully instantiated? */
+        boolean isSolved(Type mtype) {
+            if (!mtype.hasTag(METHOD) ||
+                    !types.isFullyKnown(mtype.getReturnType()))
+                return false;
+            for (Type t : mtype.getParameterTypes()) {
+                if (!types.isFullyKnown(t))
+                    return false;
+            }
+            for (Type t : mtype.getThrownTypes()) {
+                if (!types.isFullyKnown(t))
+                    return false;
+            }
+            return true;
+        }
+
+        class Key {
+            final ClassSymbol from;
+            final Type site;
+            final MethodSymbol msym;
+            final Type pt;
+            final JCList<Type> argtypes;
+            final int flags;
+            final int hash;
+
+            Key(Env<AttrContext> env, Type site, MethodSymbol msym,
+                    Attr.ResultInfo resultInfo, JCList<Type> argtypes,
+                    boolean allowBoxing, boolean useVarargs) {
+                this.from = env.enclClass.sym;
+                this.site = site;
+                this.msym = msym;
+                this.pt = resultInfo != null ? resultInfo.pt : null;
+                this.argtypes = argtypes;
+                this.flags = (allowBoxing ? 1 : 0) | (useVarargs ? 2 : 0);
+                int h = from.flatName().getIndex();
+                h = h * 31 + types.structuralHash(site);
+                h = h * 31 + msym.name.getIndex();
+                h = h * 31 + (pt != null ? types.structuralHash(pt) : 0);
+                for (Type t : argtypes)
+                    h = h * 31 + types.structuralHash(t);
+                this.hash = h * 4 + flags;
+            }
+
+            @Override
+            public int hashCode() {
+                return hash;
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                if (!(obj instanceof Key))
+                    return false;
+                Key that = (Key)obj;
+                return hash == that.hash &&
+                        from == that.from &&
+                        msym == that.msym &&
+                        flags == that.flags &&
+                        types.sameStructure(site, that.site) &&
+                        types.sameStructure(pt, that.pt) &&
+                        sameStructure(argtypes, that.argtypes);
+            }
+
+            private boolean sameStructure(JCList<Type> ts, JCList<Type> ss) {
+                while (ts.nonEmpty() && ss.nonEmpty()) {
+                    if (!types.sameStructure(ts.head, ss.head))
+                        return false;
+                    ts = ts.tail;
+                    ss = ss.tail;
+                }
+                return ts.isEmpty() && ss.isEmpty();
+            }
+        }
+    }
+
+    /** Forget the instantiations of the previous round of annotation processing. */
+    public void newRound() {
+        if (solutionCache != null)
+            solutionCache.cache.clear();
+    }
+    // </editor-fold>
+
     // <editor-fold defaultstate="collapsed" desc="Incorporation">
 
     /**
@@ -904,19 +1085,29 @@ public class Infer {
             for (Type undet : inferenceContext.undetvars) {
                 //we could filter out variables not mentioning uv2...
                 UndetVar uv2 = (UndetVar)undet;
-                uv2.substBounds(JCList.of(uv.qtype), JCList.of(uv.getInst()), types);
+                substBounds(uv2);
                 checkCompatibleUpperBounds(uv2, inferenceContext);
             }
             super.apply(inferenceContext, warn);
         }
 
+        /**
+         * Replace the instantiated variable in the bounds of the given variable.
+         */
+        void substBounds(UndetVar uv2) {
+            uv2.substBounds(JCList.of(uv.qtype), JCList.of(uv.getInst()), types);
+        }
+
         /**
          * Make sure that the upper bounds we got so far lead to a solvable inference
          * variable by making sure that a glb exists.
          */
         void checkCompatibleUpperBounds(UndetVar uv, InferenceContext inferenceContext) {
-            JCList<Type> hibounds =
-                    Type.filter(uv.getBounds(InferenceBound.UPPER), new BoundFilter(inferenceContext));
+            checkCompatibleUpperBounds(uv,
+                    Type.filter(uv.getBounds(InferenceBound.UPPER), new BoundFilter(inferenceContext)));
+        }
+
+        void checkCompatibleUpperBounds(UndetVar uv, JCList<Type> hibounds) {
             final Type hb;
             if (hibounds.isEmpty())
                 hb = syms.objectType;
@@ -998,7 +1189,7 @@ public class Infer {
         }
 
         void apply(InferenceContext inferenceContext, Warner warner) {
-            Type undetT = inferenceContext.asUndetVar(t);
+            Type undetT = asUndetVar(inferenceContext, t);
             if (undetT.hasTag(UNDETVAR) && !((UndetVar)undetT).isCaptured()) {
                 UndetVar uv2 = (UndetVar)undetT;
                 //symmetric propagation
@@ -1013,7 +1204,7 @@ public class Infer {
             //forward propagation
             for (InferenceBound ib2 : forward()) {
                 for (Type l : uv.getBounds(ib2)) {
-                    Type undet = inferenceContext.asUndetVar(l);
+                    Type undet = asUndetVar(inferenceContext, l);
                     if (undet.hasTag(TypeTag.UNDETVAR) && !((UndetVar)undet).isCaptured()) {
                         UndetVar uv2 = (UndetVar)undet;
                         uv2.addBound(ib, inferenceContext.asInstType(t), types);
@@ -1022,6 +1213,13 @@ public class Infer {
             }
         }
 
+        /**
+         * Map a bound to the inference variable it stands for, if any.
+         */
+        Type asUndetVar(InferenceContext inferenceContext, Type t) {
+            return inferenceContext.asUndetVar(t);
+        }
+
         EnumSet<InferenceBound> forward() {
             return (ib == InferenceBound.EQ) ?
                     EnumSet.of(InferenceBound.EQ) : EnumSet.complementOf(EnumSet.of(ib));
@@ -1038,6 +1236,65 @@ public class Infer {
         }
     }
 
+    /**
+     * Substitution of bounds used by the worklist engine. Only the variables whose bounds
+     * mention the instantiated variable are updated, and the glb of the upper bounds of a
+     * variable is computed again only if they changed since it was last computed.
+     */
+    class IndexedSubstBounds extends SubstBounds {
+        IndexedSubstBounds(UndetVar uv) {
+            super(uv);
+        }
+
+        @Override
+        public IncorporationAction dup(UndetVar that) {
+            return new IndexedSubstBounds(that);
+        }
+
+        @Override
+        void substBounds(UndetVar uv2) {
+            for (InferenceBound ib : InferenceBound.values()) {
+                for (Type b : uv2.getBounds(ib)) {
+                    if (b.contains(uv.qtype)) {
+                        super.substBounds(uv2);
+                        return;
+                    }
+                }
+            }
+        }
+
+        @Override
+        void checkCompatibleUpperBounds(UndetVar uv2, InferenceContext inferenceContext) {
+            JCList<Type> bounds = uv2.getBounds(InferenceBound.UPPER);
+            if (worklist == null || !worklist.isChecked(uv2, bounds)) {
+                super.checkCompatibleUpperBounds(uv2, inferenceContext);
+                if (worklist != null) {
+                    worklist.setChecked(uv2, bounds);
+                }
+            }
+        }
+    }
+
+    /**
+     * Propagation of bounds used by the worklist engine. Only bounds that are type
+     * variables can stand for an inference variable, so other bounds are not mapped.
+     */
+    class IndexedPropagateBounds extends PropagateBounds {
+        IndexedPropagateBounds(UndetVar uv, Type t, InferenceBound ib) {
+            super(uv, t, ib);
+        }
+
+        @Override
+        public IncorporationAction dup(UndetVar that) {
+            return new IndexedPropagateBounds(that, t, ib);
+        }
+
+        @Override
+        Type asUndetVar(InferenceContext inferenceContext, Type t) {
+            return t.hasTag(TYPEVAR) ? inferenceContext.asUndetVar(t) : t;
+        }
+    }
+
     /**
      * This class models an incorporation engine. The engine is responsible for listening to
      * changes in inference variables and register incorporation actions accordingly.
@@ -1102,11 +1359,64 @@ public class Infer {
         }
     };
 
+    /**
+     * The standard incorporation engine, driven by a worklist (-XDincorporationWorklist).
+     * Besides registering the same incorporation actions as the standard engine, it
+     * records which variables have pending actions, so that incorporation rounds only
+     * visit those; see {@link IncorporationWorklist}.
+     */
+    class WorklistIncorporationEngine extends AbstractIncorporationEngine {
+
+        @Override
+        public void varInstantiated(UndetVar uv) {
+            uv.incorporationActions.addFirst(new IndexedSubstBounds(uv));
+            if (worklist != null) {
+                worklist.add(uv);
+            }
+        }
+
+        @Override
+        public void varBoundChanged(UndetVar uv, InferenceBound ib, Type bound, boolean update) {
+            super.varBoundChanged(uv, ib, bound, update);
+            if (worklist != null && !uv.incorporationActions.isEmpty()) {
+                worklist.add(uv);
+            }
+        }
+
+        @Override
+        JCList<IncorporationAction> getIncorporationActions(UndetVar uv, InferenceBound ib, Type t, boolean update) {
+            ListBuffer<IncorporationAction> actions = new ListBuffer<>();
+            Type inst = uv.getInst();
+            if (inst != null) {
+                actions.add(new CheckInst(uv, ib));
+            }
+            actions.add(new CheckBounds(uv, t, ib));
+
+            if (update) {
+                return actions.toList();
+            }
+
+            if (ib == InferenceBound.UPPER) {
+                actions.add(new CheckUpperBounds(uv, t));
+            }
+
+            actions.add(new IndexedPropagateBounds(uv, t, ib));
+
+            return actions.toList();
+        }
+    }
+
+    /** The worklist incorporation engine, if enabled. */
+    final AbstractIncorporationEngine worklistEngine;
+
     /**
      * Get the incorporation engine to be used in this compilation.
      */
     AbstractIncorporationEngine incorporationEngine() {
-        return allowGraphInference ? graphEngine : legacyEngine;
+        if (!allowGraphInference) {
+            return legacyEngine;
+        }
+        return useIncorporationWorklist ? worklistEngine : graphEngine;
     }
 
     /** max number of incorporation rounds. */
@@ -1116,6 +1426,10 @@ public class Infer {
      * Check bounds and perform incorporation.
      */
     void doIncorporation(InferenceContext inferenceContext, Warner warn) throws InferenceException {
+        if (incorporationEngine() == worklistEngine) {
+            doWorklistIncorporation(inferenceContext, warn);
+            return;
+        }
         try {
             boolean progress = true;
             int round = 0;
@@ -1135,6 +1449,154 @@ public class Infer {
         }
     }
 
+    /**
+     * Check bounds and perform incorporation, visiting only the variables in the
+     * worklist. Rounds are the same as in {@link #doIncorporation}: in each round,
+     * the first pending action of each variable is applied, in the order in which
+     * the variables appear in the inference context; so the bounds, and the order
+     * in which they are added, are the same as with the standard engine.
+     */
+    void doWorklistIncorporation(InferenceContext inferenceContext, Warner warn) throws InferenceException {
+        IncorporationWorklist prevWorklist = worklist;
+        IncorporationWorklist wl = inferenceContext.worklist;
+        if (wl == null) {
+            wl = inferenceContext.worklist = new IncorporationWorklist(inferenceContext);
+        }
+        worklist = wl;
+        try {
+            wl.update();
+            boolean progress = true;
+            int round = 0;
+            while (progress && round < MAX_INCORPORATION_STEPS) {
+                progress = false;
+                if (wl.isStale()) {
+                    wl.update();
+                }
+                for (int i = wl.pending.nextSetBit(0); i >= 0; i = wl.pending.nextSetBit(i + 1)) {
+                    UndetVar uv = wl.vars[i];
+                    if (!uv.incorporationActions.isEmpty()) {
+                        progress = true;
+                        uv.incorporationActions.removeFirst().apply(inferenceContext, warn);
+                    }
+                    if (uv.incorporationActions.isEmpty()) {
+                        wl.pending.clear(i);
+                    }
+                }
+                round++;
+            }
+        } finally {
+            worklist = prevWorklist;
+            incorporationCache.clear();
+        }
+    }
+
+    /** The worklist of the incorporation in progress, if any. */
+    IncorporationWorklist worklist;
+
+    /**
+     * The worklist of the incorporation engine for an inference context: the inference
+     * variables of the context, indexed by their position in the context, along with the
+     * set of positions of the variables that have pending incorporation actions. The
+     * worklist also records, for each variable, the upper bounds whose glb is known to
+     * exist; this only depends on the inference variables of the context, so it is kept
+     * from one incorporation to the next as long as these do not change.
+     */
+    class IncorporationWorklist {
+        final InferenceContext inferenceContext;
+        JCList<Type> inferencevars;
+        JCList<Type> undetvars;
+        UndetVar[] vars;
+        JCList<?>[] checkedBounds;
+        final BitSet pending = new BitSet();
+
+        IncorporationWorklist(InferenceContext inferenceContext) {
+            this.inferenceContext = inferenceContext;
+        }
+
+        /** Have the variables of the inference context changed since they were indexed? */
+        boolean isStale() {
+            return inferenceContext.undetvars != undetvars ||
+                    inferenceContext.inferencevars != inferencevars;
+        }
+
+        /**
+         * Index the variables of the inference context, if needed, and find the ones
+         * with pending incorporation actions.
+         */
+        void update() {
+            if (isStale()) {
+                inferencevars = inferenceContext.inferencevars;
+                undetvars = inferenceContext.undetvars;
+                vars = new UndetVar[undetvars.length()];
+                checkedBounds = new JCList<?>[vars.length];
+                int i = 0;
+                for (Type t : undetvars) {
+                    vars[i++] = (UndetVar)t;
+                }
+            }
+            pending.clear();
+            for (int i = 0; i < vars.length; i++) {
+                UndetVar uv = vars[i];
+                uv.worklistIndex = i;
+                if (!uv.incorporationActions.isEmpty()) {
+                    pending.set(i);
+                }
+            }
+        }
+
+        /** The position of a variable in the inference context, or -1. */
+        int indexOf(UndetVar uv) {
+            int i = uv.worklistIndex;
+            if (i >= 0 && i < vars.length && vars[i] == uv) {
+                return i;
+            }
+            //the index was overwritten by another worklist
+            for (i = 0; i < vars.length; i++) {
+                if (vars[i] == uv) {
+                    uv.worklistIndex = i;
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /** Record that a variable has pending incorporation actions. */
+        void add(UndetVar uv) {
+            int i = indexOf(uv);
+            if (i >= 0) {
+                pending.set(i);
+            }
+        }
+
+        /** Is the glb of the given upper bounds of a variable known to exist? */
+        boolean isChecked(UndetVar uv, JCList<Type> bounds) {
+            int i = indexOf(uv);
+            return i >= 0 && sameBounds(checkedBounds[i], bounds);
+        }
+
+        /** Record that the glb of the given upper bounds of a variable exists. */
+        void setChecked(UndetVar uv, JCList<Type> bounds) {
+            int i = indexOf(uv);
+            if (i >= 0) {
+                checkedBounds[i] = bounds;
+            }
+        }
+
+        /** Are the given bounds the same types as the recorded ones? */
+        private boolean sameBounds(JCList<?> recorded, JCList<Type> bounds) {
+            if (recorded == null) {
+                return false;
+            }
+            for (Type t : bounds) {
+                if (recorded.isEmpty() || recorded.head != t) {
+                    return false;
+                }
+                recorded = recorded.tail;
+            }
+            return recorded.isEmpty();
+        }
+    }
+
     /* If for two types t and s there is a least upper bound that contains
      * parameterized types G1, G2 ... Gn, then there exists supertypes of 't' of the form
      * G1<T1, ..., Tn>, G2<T1, ..., Tn>, ... Gn<T1, ..., Tn> and supertypes of 's' of the form
@@ -1253,7 +1715,7 @@ public class Infer {
     }
 
     /** an incorporation cache keeps track of all executed incorporation-related operations */
-    Map<IncorporationBinaryOp, Boolean> incorporationCache = new HashMap<>();
+    final Caches.Cache<IncorporationBinaryOp, Boolean> incorporationCache;
 
     protected static class BoundFilter implements Filter<Type> {
 
@@ -46,6 +46,7 @@ import com.flint.tools.flintc.code.Type.WildcardType;
 import com.flint.tools.flintc.comp.Infer.FreeTypeListener;
 import com.flint.tools.flintc.comp.Infer.GraphSolver;
 import com.flint.tools.flintc.comp.Infer.GraphStrategy;
+import com.flint.tools.flintc.comp.Infer.IncorporationWorklist;
 import com.flint.tools.flintc.comp.Infer.InferenceException;
 import com.flint.tools.flintc.comp.Infer.InferenceStep;
 import com.flint.tools.flintc.util.Assert;
@@ -84,6 +85,9 @@ public class InferenceContext {
     Types types;
     Infer infer;
 
+    /** the worklist of the incorporation engine, if any (-XDincorporationWorklist) */
+    IncorporationWorklist worklist;
+
     public InferenceContext(Infer infer, JCList<Type> inferencevars) {
         this(infer, inferencevars, inferencevars.map(infer.fromTypeVarFun));
     }
@@ -118,6 +118,9 @@ public class Resolve {
 
     WriteableScope polymorphicSignatureScope;
 
+    /** The cache of methods found by findMethod, or null (-XDresolveCache) */
+    final LookupCache lookupCache;
+
     protected Resolve(Context context) {
         context.put(resolveKey, this);
         syms = Symtab.instance(context);
@@ -152,6 +155,21 @@ public class Resolve {
         inapplicableMethodException = new InapplicableMethodException(diags);
 
         allowModules = source.allowModules();
+
+        if (options.isSet("resolveCache") && verboseResolutionMode.isEmpty()) {
+            int size = Caches.DEFAULT_SIZE;
+            String value = options.get("resolveCache");
+            if (value != null && !value.equals("resolveCache")) {
+                try {
+                    size = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    // use the default size
+                }
+            }
+            lookupCache = new LookupCache(Caches.instance(context), size);
+        } else {
+            lookupCache = null;
+        }
     }
 
     /** error symbols, which are returned when resolution fails
@@ -612,6 +630,7 @@ public class Resolve {
 
         if (instNeeded) {
             return infer.instantiateMethod(env,
+                                    site,
                                     tvars,
                                     (MethodType)mt,
                                     resultInfo,
@@ -1774,6 +1793,14 @@ public class Resolve {
                       JCList<Type> typeargtypes,
                       boolean allowBoxing,
                       boolean useVarargs) {
+        LookupCache.Key key = null;
+        if (lookupCache != null && lookupCache.accepts(env, site, argtypes, typeargtypes)) {
+            key = lookupCache.new Key(env, site, name, argtypes, typeargtypes,
+                    allowBoxing, useVarargs);
+            Symbol sym = lookupCache.cache.get(key);
+            if (sym != null)
+                return sym;
+        }
         Symbol bestSoFar = methodNotFound;
         bestSoFar = findMethod(env,
                           site,
@@ -1784,6 +1811,8 @@ public class Resolve {
                           bestSoFar,
                           allowBoxing,
                           useVarargs);
+        if (key != null && bestSoFar.kind == MTH)
+            lookupCache.cache.put(key, bestSoFar);
         return bestSoFar;
     }
     // where
@@ -1841,6 +1870,117 @@ public class Resolve {
         return bestSoFar;
     }
 
+    /**
+     * A cache of the methods found by findMethod, enabled by
+     * {@code -XDresolveCache[=size]}. Only lookups done by plain overload
+     * resolution are cached, not those of method references, whose
+     * candidates are looked at afterwards, and only if the site and all
+     * argument types are fully known (see {@link Types#isFullyKnown}), so
+     * that no argument is a poly expression.
+     * The key holds everything else the outcome depends on: the class the
+     * lookup is done from, which decides accessibility, whether the method
+     * is selected from super, and the resolution phase. Only successful
+     * lookups are stored, since errors carry the candidates of the lookup
+     * that produced them. Members of classes do not change once they can
+     * be the site of such a lookup, except across rounds of annotation
+     * processing, where the cache is cleared. The cache holds at most the
+     * given number of entries, evicting the least recently used ones.
+     */
+    class LookupCache {
+        final Caches.Cache<Key, Symbol> cache;
+
+        LookupCache(Caches caches, int size) {
+            cache = caches.newCache("lookup", Caches.Policy.LRU, size);
+        }
+
+        /** Can the lookup of a method with the given arguments be cached? */
+        boolean accepts(Env<AttrContext> env, Type site,
+                        JCList<Type> argtypes, JCList<Type> typeargtypes) {
+            if (currentResolutionContext == null ||
+                    currentResolutionContext.methodCheck != resolveMethodCheck ||
+                    currentResolutionContext.keepCandidates ||
+                    env.info.visitingServiceImplementation ||
+                    env.enclMethod != null && (env.enclMethod.mods.flags & ANONCONSTR) != 0 ||
+                    !site.hasTag(CLASS) && !site.hasTag(ARRAY) ||
+                    !types.isFullyKnown(site))
+                return false;
+            for (JCList<Type> l = argtypes; l.nonEmpty(); l = l.tail) {
+                if (!types.isFullyKnown(l.head))
+                    return false;
+            }
+            for (JCList<Type> l = typeargtypes; l != null && l.nonEmpty(); l = l.tail) {
+                if (!types.isFullyKnown(l.head))
+                    return false;
+            }
+            return true;
+        }
+
+        class Key {
+            final ClassSymbol from;
+            final Type site;
+            final Name name;
+            final JCList<Type> argtypes;
+            final JCList<Type> typeargtypes;
+            final int flags;
+            final int hash;
+
+            Key(Env<AttrContext> env, Type site, Name name,
+                    JCList<Type> argtypes, JCList<Type> typeargtypes,
+                    boolean allowBoxing, boolean useVarargs) {
+                this.from = env.enclClass.sym;
+                this.site = site;
+                this.name = name;
+                this.argtypes = argtypes;
+                this.typeargtypes = typeargtypes == null ? JCList.nil() : typeargtypes;
+                this.flags = (allowBoxing ? 1 : 0) | (useVarargs ? 2 : 0) |
+                        (env.info.selectSuper ? 4 : 0);
+                int h = from.flatName().getIndex();
+                h = h * 31 + types.structuralHash(site);
+                h = h * 31 + name.getIndex();
+                for (Type t : argtypes)
+                    h = h * 31 + types.structuralHash(t);
+                for (Type t : this.typeargtypes)
+                    h = h * 31 + types.structuralHash(t);
+                this.hash = h * 8 + flags;
+            }
+
+            @Override
+            public int hashCode() {
+                return hash;
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                if (!(obj instanceof Key))
+                    return false;
+                Key that = (Key)obj;
+                return hash == that.hash &&
+                        from == that.from &&
+                        name == that.name &&
+                        flags == that.flags &&
+                        types.sameStructure(site, that.site) &&
+                        sameStructure(argtypes, that.argtypes) &&
+                        sameStructure(typeargtypes, that.typeargtypes);
+            }
+
+            private boolean sameStructure(JCList<Type> ts, JCList<Type> ss) {
+                while (ts.nonEmpty() && ss.nonEmpty()) {
+                    if (!types.sameStructure(ts.head, ss.head))
+                        return false;
+                    ts = ts.tail;
+                    ss = ss.tail;
+                }
+                return ts.isEmpty() && ss.isEmpty();
+            }
+        }
+    }
+
+    /** Forget the methods found in the previous round of annotation processing. */
+    public void newRound() {
+        if (lookupCache != null)
+            lookupCache.cache.clear();
+    }
+
     enum InterfaceLookupPhase {
         ABSTRACT_OK() {
             @Override
@@ -2943,6 +3083,7 @@ public class Resolve {
         Env<AttrContext> boundEnv = env.dup(env.tree, env.info.dup());
         MethodResolutionContext boundSearchResolveContext = new MethodResolutionContext();
         boundSearchResolveContext.methodCheck = methodCheck;
+        boundSearchResolveContext.keepCandidates = true;
         Symbol boundSym = lookupMethod(boundEnv, env.tree.pos(),
                 site.tsym, boundSearchResolveContext, boundLookupHelper);
         ReferenceLookupResult boundRes = new ReferenceLookupResult(boundSym, boundSearchResolveContext);
@@ -2956,6 +3097,7 @@ public class Resolve {
             MethodResolutionContext unboundSearchResolveContext =
                     new MethodResolutionContext();
             unboundSearchResolveContext.methodCheck = methodCheck;
+            unboundSearchResolveContext.keepCandidates = true;
             unboundSym = lookupMethod(unboundEnv, env.tree.pos(),
                     site.tsym, unboundSearchResolveContext, unboundLookupHelper);
             unboundRes = new ReferenceLookupResult(unboundSym, unboundSearchResolveContext);
@@ -4673,6 +4815,10 @@ public class Resolve {
         MethodCheck methodCheck = resolveMethodCheck;
 
         private boolean internalResolution = false;
+
+        /** Are the candidates looked at needed after a successful lookup? */
+        boolean keepCandidates = false;
+
         private DeferredAttr.AttrMode attrMode = DeferredAttr.AttrMode.SPECULATIVE;
 
         void addInapplicableCandidate(Symbol sym, JCDiagnostic details) {
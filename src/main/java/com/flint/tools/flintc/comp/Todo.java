@@ -123,6 +123,16 @@ public class Todo extends AbstractQueue<Env<AttrContext>> {
         return contentsByFile;
     }
 
+    /**
+     * Returns true if any unattributed classes belong to the given file.
+     *
+     * @param file The source file of interest.
+     */
+    public boolean containsFile(JavaFileObject file) {
+        groupByFile();
+        return fileMap != null && fileMap.containsKey(file);
+    }
+
     private void addByFile(Env<AttrContext> env) {
         JavaFileObject file = env.toplevel.sourcefile;
         if (fileMap == null)
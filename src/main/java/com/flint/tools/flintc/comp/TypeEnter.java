@@ -119,6 +119,7 @@ public class TypeEnter implements Completer {
     private final Lint lint;
     private final TypeEnvs typeEnvs;
     private final Dependencies dependencies;
+    private final PhaseProfiler profiler;
 
     public static TypeEnter instance(Context context) {
         TypeEnter instance = context.get(typeEnterKey);
@@ -146,6 +147,7 @@ public class TypeEnter implements Completer {
         lint = Lint.instance(context);
         typeEnvs = TypeEnvs.instance(context);
         dependencies = Dependencies.instance(context);
+        profiler = PhaseProfiler.instance(context);
         Source source = Source.instance(context);
         allowTypeAnnos = source.allowTypeAnnotations();
         allowDeprecationOnImport = source.allowDeprecationOnImport();
@@ -241,9 +243,11 @@ public class TypeEnter implements Completer {
         private final ListBuffer<Env<AttrContext>> queue = new ListBuffer<>();
         private final Phase next;
         private final CompletionCause phaseName;
+        private final PhaseProfiler.Phase profilerPhase;
 
-        Phase(CompletionCause phaseName, Phase next) {
+        Phase(CompletionCause phaseName, PhaseProfiler.Phase profilerPhase, Phase next) {
             this.phaseName = phaseName;
+            this.profilerPhase = profilerPhase;
             this.next = next;
         }
 
@@ -277,6 +281,7 @@ public class TypeEnter implements Completer {
 
                 JavaFileObject prev = log.useSource(env.toplevel.sourcefile);
                 DiagnosticPosition prevLintPos = deferredLintHandler.setPos(tree.pos());
+                profiler.start(profilerPhase, env.toplevel.sourcefile);
                 try {
                     dependencies.push(env.enclClass.sym, phaseName);
                     runPhase(env);
@@ -284,6 +289,7 @@ public class TypeEnter implements Completer {
                     chk.completionError(tree.pos(), ex);
                 } finally {
                     dependencies.pop();
+                    profiler.end();
                     deferredLintHandler.setPos(prevLintPos);
                     log.useSource(prev);
                 }
@@ -301,7 +307,7 @@ public class TypeEnter implements Completer {
     private final class ImportsPhase extends Phase {
 
         public ImportsPhase() {
-            super(CompletionCause.IMPORTS_PHASE, new HierarchyPhase());
+            super(CompletionCause.IMPORTS_PHASE, PhaseProfiler.Phase.IMPORTS, new HierarchyPhase());
         }
 
         Env<AttrContext> env;
@@ -510,8 +516,8 @@ public class TypeEnter implements Completer {
      */
     private abstract class AbstractHeaderPhase extends Phase {
 
-        public AbstractHeaderPhase(CompletionCause phaseName, Phase next) {
-            super(phaseName, next);
+        public AbstractHeaderPhase(CompletionCause phaseName, PhaseProfiler.Phase profilerPhase, Phase next) {
+            super(phaseName, profilerPhase, next);
         }
 
         protected Env<AttrContext> baseEnv(JCClassDecl tree, Env<AttrContext> env) {
@@ -725,7 +731,7 @@ public class TypeEnter implements Completer {
     private final class HierarchyPhase extends AbstractHeaderPhase implements Completer {
 
         public HierarchyPhase() {
-            super(CompletionCause.HIERARCHY_PHASE, new HeaderPhase());
+            super(CompletionCause.HIERARCHY_PHASE, PhaseProfiler.Phase.HIERARCHY, new HeaderPhase());
         }
 
         @Override
@@ -802,7 +808,7 @@ public class TypeEnter implements Completer {
     private final class HeaderPhase extends AbstractHeaderPhase {
 
         public HeaderPhase() {
-            super(CompletionCause.HEADER_PHASE, new MembersPhase());
+            super(CompletionCause.HEADER_PHASE, PhaseProfiler.Phase.HEADER, new MembersPhase());
         }
 
         @Override
@@ -857,7 +863,7 @@ public class TypeEnter implements Completer {
     private final class MembersPhase extends Phase {
 
         public MembersPhase() {
-            super(CompletionCause.MEMBERS_PHASE, null);
+            super(CompletionCause.MEMBERS_PHASE, PhaseProfiler.Phase.MEMBERS, null);
         }
 
         private boolean completing;
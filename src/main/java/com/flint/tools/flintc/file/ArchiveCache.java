@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package com.flint.tools.flintc.file;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.flint.tools.flintc.util.Context;
+
+/**
+ * A cache of opened archives that can be shared by the file managers of
+ * successive compilations in the same process.  An archive is reused as
+ * long as its size and modification time are unchanged; otherwise it is
+ * closed and opened again.
+ *
+ * <p>JavacFileManager only uses the cache when one has been registered in
+ * its context.  Archives obtained from the cache are not closed when the
+ * file manager is closed; they stay open until the cache is closed.
+ *
+ * <p><b>This is NOT part of any supported API.
+ * If you write code that depends on this, you do so at your own risk.
+ * This code and its internal interfaces are subject to change or
+ * deletion without notice.</b>
+ */
+public class ArchiveCache {
+
+    /** Get the cache registered in the given context, or null if none. */
+    public static ArchiveCache instance(Context context) {
+        return context.get(ArchiveCache.class);
+    }
+
+    /** Register this cache in the given context. */
+    public void preRegister(Context context) {
+        context.put(ArchiveCache.class, this);
+    }
+
+    /** An opened archive, together with the index of its packages. */
+    static class Archive {
+        final FileSystem fileSystem;
+        final Map<RelativePath, Path> packages;
+
+        Archive(FileSystem fileSystem, Map<RelativePath, Path> packages) {
+            this.fileSystem = fileSystem;
+            this.packages = packages;
+        }
+
+        void close() throws IOException {
+            fileSystem.close();
+        }
+    }
+
+    /** Opens an archive that is not in the cache. */
+    interface Opener {
+        Archive open() throws IOException;
+    }
+
+    private static class Entry {
+        final Archive archive;
+        final FileTime lastModified;
+        final long size;
+
+        Entry(Archive archive, BasicFileAttributes attr) {
+            this.archive = archive;
+            this.lastModified = attr.lastModifiedTime();
+            this.size = attr.size();
+        }
+
+        boolean isCurrent(BasicFileAttributes attr) {
+            return lastModified.equals(attr.lastModifiedTime()) && size == attr.size();
+        }
+    }
+
+    private final Map<String, Entry> archives = new HashMap<>();
+
+    private int hits;
+    private int misses;
+
+    /**
+     * Get the archive for a canonical path, opening it if it is not cached
+     * or if the file has changed since it was opened.
+     * @param realPath the canonical path of the archive
+     * @param attr the current attributes of the archive file
+     * @param multiReleaseValue the multi-release setting used to open it, or null
+     * @param opener used to open the archive when needed
+     */
+    synchronized Archive get(Path realPath, BasicFileAttributes attr,
+                             String multiReleaseValue, Opener opener) throws IOException {
+        String key = (multiReleaseValue == null)
+                ? realPath.toString()
+                : realPath + "!" + multiReleaseValue;
+        Entry e = archives.get(key);
+        if (e != null) {
+            if (e.isCurrent(attr)) {
+                hits++;
+                return e.archive;
+            }
+            archives.remove(key);
+            e.archive.close();
+        }
+        misses++;
+        e = new Entry(opener.open(), attr);
+        archives.put(key, e);
+        return e.archive;
+    }
+
+    /** The number of archives currently open. */
+    public synchronized int size() {
+        return archives.size();
+    }
+
+    /** A one-line summary of the cache activity, for diagnostic output. */
+    public synchronized String getStatistics() {
+        return "archives: " + archives.size() + " open, " + hits + " reused, " + misses + " opened";
+    }
+
+    /** Close all the cached archives. */
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (Entry e : archives.values()) {
+            try {
+                e.archive.close();
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }
+        archives.clear();
+        if (failure != null)
+            throw failure;
+    }
+}
@@ -33,19 +33,24 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
@@ -435,6 +440,49 @@ public abstract class BaseFileManager implements JavaFileManager {
     private final ByteBufferCache byteBufferCache;
     // </editor-fold>
 
+    // <editor-fold defaultstate="collapsed" desc="UTF-8 content">
+    /**
+     * The size from which source files are memory-mapped, rather than read
+     * into a heap buffer, by {@link #getUtf8Content}.
+     */
+    private static final int MAP_THRESHOLD = 64 * 1024;
+
+    /**
+     * Get the content of a file as undecoded bytes, if the source encoding
+     * is UTF-8. Files of at least {@value #MAP_THRESHOLD} bytes on the default
+     * file system are memory-mapped; others are read into a new heap buffer.
+     * @param file the file
+     * @return the bytes of the file, or null if the encoding is not UTF-8, or
+     *         if the file is already in the content cache
+     * @throws IOException if an error occurred while reading the file
+     */
+    public ByteBuffer getUtf8Content(JavaFileObject file) throws IOException {
+        if (getCachedContent(file) != null)
+            return null;
+        try {
+            if (!Charset.forName(getEncodingName()).equals(StandardCharsets.UTF_8))
+                return null;
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            return null;
+        }
+        if (file instanceof PathFileObject) {
+            Path path = ((PathFileObject) file).path;
+            if (path.getFileSystem() == FileSystems.getDefault()) {
+                long size = Files.size(path);
+                if (size >= MAP_THRESHOLD && size <= Integer.MAX_VALUE) {
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    }
+                }
+                return ByteBuffer.wrap(Files.readAllBytes(path));
+            }
+        }
+        try (InputStream in = file.openInputStream()) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+    // </editor-fold>
+
     // <editor-fold defaultstate="collapsed" desc="Content cache">
     public CharBuffer getCachedContent(JavaFileObject file) {
         ContentCacheEntry e = contentCache.get(file);
@@ -457,7 +505,8 @@ public abstract class BaseFileManager implements JavaFileManager {
         contentCache.remove(file);
     }
 
-    protected final Map<JavaFileObject, ContentCacheEntry> contentCache = new HashMap<>();
+    // concurrent, as output files may flush the cache from background writer threads
+    protected final Map<JavaFileObject, ContentCacheEntry> contentCache = new ConcurrentHashMap<>();
 
     protected static class ContentCacheEntry {
         final long timestamp;
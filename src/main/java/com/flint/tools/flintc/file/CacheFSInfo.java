@@ -26,7 +26,10 @@
 package com.flint.tools.flintc.file;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -59,6 +62,15 @@ public class CacheFSInfo extends FSInfo {
         cache.clear();
     }
 
+    /**
+     * Remove the entries for files that have been created, deleted or
+     * modified since they were cached.  This allows a cache to be shared
+     * by successive compilations in the same process.
+     */
+    public void removeStaleEntries() {
+        cache.entrySet().removeIf(e -> !e.getValue().isCurrent(e.getKey()));
+    }
+
     @Override
     public Path getCanonicalFile(Path file) {
         Entry e = getEntry(file);
@@ -105,6 +117,7 @@ public class CacheFSInfo extends FSInfo {
             e.exists = super.exists(file);
             e.isDirectory = super.isDirectory(file);
             e.isFile = super.isFile(file);
+            e.lastModified = lastModified(file);
             cache.put(file, e);
         }
         return e;
@@ -119,5 +132,29 @@ public class CacheFSInfo extends FSInfo {
         boolean isFile;
         boolean isDirectory;
         List<Path> jarClassPath;
+        FileTime lastModified;
+
+        boolean isCurrent(Path file) {
+            BasicFileAttributes attr = readAttributes(file);
+            if (attr == null)
+                return !exists;
+            return exists
+                    && isDirectory == attr.isDirectory()
+                    && isFile == attr.isRegularFile()
+                    && attr.lastModifiedTime().equals(lastModified);
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        BasicFileAttributes attr = readAttributes(file);
+        return (attr == null) ? null : attr.lastModifiedTime();
+    }
+
+    private static BasicFileAttributes readAttributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
     }
 }
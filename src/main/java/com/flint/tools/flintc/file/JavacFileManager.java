@@ -107,6 +107,9 @@ public class JavacFileManager extends BaseFileManager implements StandardJavaFil
 
     private FSInfo fsInfo;
 
+    /** Archives shared with other compilations in this process, or null. */
+    private ArchiveCache archiveCache;
+
     private final Set<JavaFileObject.Kind> sourceOrClass =
         EnumSet.of(JavaFileObject.Kind.SOURCE, JavaFileObject.Kind.CLASS);
 
@@ -158,6 +161,7 @@ public class JavacFileManager extends BaseFileManager implements StandardJavaFil
         super.setContext(context);
 
         fsInfo = FSInfo.instance(context);
+        archiveCache = ArchiveCache.instance(context);
 
         symbolFileEnabled = !options.isSet("ignore.symbol.file");
 
@@ -316,7 +320,7 @@ public class JavacFileManager extends BaseFileManager implements StandardJavaFil
                 fs = new DirectoryContainer(realPath);
             } else {
                 try {
-                    fs = new ArchiveContainer(realPath);
+                    fs = new ArchiveContainer(realPath, attr);
                 } catch (ProviderNotFoundException | SecurityException ex) {
                     throw new IOException(ex);
                 }
@@ -507,32 +511,21 @@ public class JavacFileManager extends BaseFileManager implements StandardJavaFil
         private final Path archivePath;
         private final FileSystem fileSystem;
         private final Map<RelativePath, Path> packages;
+        private final boolean shared;
 
-        public ArchiveContainer(Path archivePath) throws IOException, ProviderNotFoundException, SecurityException {
+        public ArchiveContainer(Path archivePath, BasicFileAttributes attr) throws IOException, ProviderNotFoundException, SecurityException {
             this.archivePath = archivePath;
-            if (multiReleaseValue != null && archivePath.toString().endsWith(".jar")) {
-                Map<String,String> env = Collections.singletonMap("multi-release", multiReleaseValue);
-                FileSystemProvider jarFSProvider = fsInfo.getJarFSProvider();
-                Assert.checkNonNull(jarFSProvider, "should have been caught before!");
-                this.fileSystem = jarFSProvider.newFileSystem(archivePath, env);
+            ArchiveCache.Archive archive;
+            if (archiveCache != null) {
+                archive = archiveCache.get(archivePath, attr, multiReleaseValue,
+                        () -> openArchive(archivePath));
+                shared = true;
             } else {
-                this.fileSystem = FileSystems.newFileSystem(archivePath, null);
-            }
-            packages = new HashMap<>();
-            for (Path root : fileSystem.getRootDirectories()) {
-                Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), Integer.MAX_VALUE,
-                        new SimpleFileVisitor<Path>() {
-                            @Override
-                            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                                if (isValid(dir.getFileName())) {
-                                    packages.put(new RelativeDirectory(root.relativize(dir).toString()), dir);
-                                    return FileVisitResult.CONTINUE;
-                                } else {
-                                    return FileVisitResult.SKIP_SUBTREE;
-                                }
-                            }
-                        });
+                archive = openArchive(archivePath);
+                shared = false;
             }
+            this.fileSystem = archive.fileSystem;
+            this.packages = archive.packages;
         }
 
         /**
@@ -556,7 +549,7 @@ public class JavacFileManager extends BaseFileManager implements StandardJavaFil
                     new SimpleFileVisitor<Path>() {
                         @Override
                         public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                            if (isValid(dir.getFileName())) {
+                            if (isValidArchiveDirectory(dir.getFileName())) {
                                 return FileVisitResult.CONTINUE;
                             } else {
                                 return FileVisitResult.SKIP_SUBTREE;
@@ -576,18 +569,6 @@ public class JavacFileManager extends BaseFileManager implements StandardJavaFil
 
         }
 
-        private boolean isValid(Path fileName) {
-            if (fileName == null) {
-                return true;
-            } else {
-                String name = fileName.toString();
-                if (name.endsWith("/")) {
-                    name = name.substring(0, name.length() - 1);
-                }
-                return SourceVersion.isIdentifier(name);
-            }
-        }
-
         @Override
         public JavaFileObject getFileObject(Path userPath, RelativeFile name) throws IOException {
             RelativeDirectory root = name.dirname();
@@ -603,7 +584,48 @@ public class JavacFileManager extends BaseFileManager implements StandardJavaFil
 
         @Override
         public void close() throws IOException {
-            fileSystem.close();
+            if (!shared)
+                fileSystem.close();
+        }
+    }
+
+    private ArchiveCache.Archive openArchive(Path archivePath) throws IOException {
+        FileSystem fileSystem;
+        if (multiReleaseValue != null && archivePath.toString().endsWith(".jar")) {
+            Map<String,String> env = Collections.singletonMap("multi-release", multiReleaseValue);
+            FileSystemProvider jarFSProvider = fsInfo.getJarFSProvider();
+            Assert.checkNonNull(jarFSProvider, "should have been caught before!");
+            fileSystem = jarFSProvider.newFileSystem(archivePath, env);
+        } else {
+            fileSystem = FileSystems.newFileSystem(archivePath, null);
+        }
+        Map<RelativePath, Path> packages = new HashMap<>();
+        for (Path root : fileSystem.getRootDirectories()) {
+            Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), Integer.MAX_VALUE,
+                    new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                            if (isValidArchiveDirectory(dir.getFileName())) {
+                                packages.put(new RelativeDirectory(root.relativize(dir).toString()), dir);
+                                return FileVisitResult.CONTINUE;
+                            } else {
+                                return FileVisitResult.SKIP_SUBTREE;
+                            }
+                        }
+                    });
+        }
+        return new ArchiveCache.Archive(fileSystem, packages);
+    }
+
+    private static boolean isValidArchiveDirectory(Path fileName) {
+        if (fileName == null) {
+            return true;
+        } else {
+            String name = fileName.toString();
+            if (name.endsWith("/")) {
+                name = name.substring(0, name.length() - 1);
+            }
+            return SourceVersion.isIdentifier(name);
         }
     }
 
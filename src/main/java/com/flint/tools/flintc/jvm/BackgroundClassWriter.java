@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package com.flint.tools.flintc.jvm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileManager.Location;
+import javax.tools.JavaFileObject;
+
+import com.flint.tools.flintc.code.Symbol.ClassSymbol;
+import com.flint.tools.flintc.file.JavacFileManager;
+import com.flint.tools.flintc.util.Abort;
+import com.flint.tools.flintc.util.Context;
+import com.flint.tools.flintc.util.Log;
+import com.flint.tools.flintc.util.Options;
+
+import static com.flint.tools.flintc.main.Option.VERBOSE;
+
+/** The output stage for class files whose contents have already been
+ *  generated by ClassWriter. The files are created and written by a bounded
+ *  pool of background threads, so that the compiler thread does not block
+ *  on the file system. Enabled by {@code -XDasyncClassWriter[=n]}.
+ *
+ *  <p>The outcome of each write is reported on the compiler thread, in the
+ *  order in which the classes were generated: completed writes are reported
+ *  whenever another class is submitted, and all outstanding writes are waited
+ *  for and reported by {@link #flush}.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class BackgroundClassWriter {
+    protected static final Context.Key<BackgroundClassWriter> backgroundClassWriterKey = new Context.Key<>();
+
+    /** The maximum number of class files waiting for a writer thread. When
+     *  the queue is full, the compiler thread writes the file itself.
+     */
+    static final int MAX_QUEUED = 64;
+
+    /** Get the BackgroundClassWriter instance for this context. */
+    public static BackgroundClassWriter instance(Context context) {
+        BackgroundClassWriter instance = context.get(backgroundClassWriterKey);
+        if (instance == null)
+            instance = new BackgroundClassWriter(context);
+        return instance;
+    }
+
+    private final Log log;
+
+    /** Access to files. */
+    private final JavaFileManager fileManager;
+
+    /** Switch: verbose output.
+     */
+    private final boolean verbose;
+
+    /** The number of writer threads, or 0 if class files should not be
+     *  written in the background.
+     */
+    private final int nthreads;
+
+    /** The writer threads, created on first use.
+     */
+    private ThreadPoolExecutor executor;
+
+    /** The writes that have not yet been reported, in submission order.
+     */
+    private final Deque<PendingWrite> pending = new ArrayDeque<>();
+
+    protected BackgroundClassWriter(Context context) {
+        context.put(backgroundClassWriterKey, this);
+
+        log = Log.instance(context);
+        fileManager = context.get(JavaFileManager.class);
+
+        Options options = Options.instance(context);
+        verbose = options.isSet(VERBOSE);
+        nthreads = options.isSet("asyncClassWriter") ? options.getThreadCount("asyncClassWriter") : 0;
+    }
+
+    /** Should class files be written in the background? Only output files
+     *  of a JavacFileManager are known to be safe to create and write
+     *  concurrently with the compiler's other uses of the file manager.
+     */
+    public boolean isEnabled() {
+        return nthreads > 0 && fileManager instanceof JavacFileManager;
+    }
+
+    /** Schedule a class file to be written.
+     *  @param c          The class whose class file is written.
+     *  @param location   The output location for the class file.
+     *  @param name       The name of the class file, as used by the file manager.
+     *  @param bytes      The contents of the class file.
+     */
+    public void write(ClassSymbol c, Location location, String name, byte[] bytes) {
+        drain(false);
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(nthreads, nthreads, 0L, TimeUnit.MILLISECONDS,
+                                              new ArrayBlockingQueue<>(MAX_QUEUED),
+                                              threadFactory,
+                                              new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        JavaFileObject sibling = c.sourcefile;
+        pending.add(new PendingWrite(c, executor.submit(() -> writeFile(location, name, sibling, bytes))));
+    }
+
+    /** Wait for all scheduled class files to be written, reporting any errors,
+     *  and release the writer threads.
+     */
+    public void flush() {
+        try {
+            drain(true);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+    }
+
+    /** Report the outcome of scheduled writes, in the order in which they were
+     *  scheduled, stopping at the first write that has not yet completed unless
+     *  waiting has been requested.
+     */
+    private void drain(boolean wait) {
+        while (!pending.isEmpty() && (wait || pending.peek().result.isDone())) {
+            PendingWrite w = pending.remove();
+            try {
+                JavaFileObject outFile = w.result.get();
+                if (verbose)
+                    log.printVerbose("wrote.file", outFile);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new Abort(ex);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof IOException) {
+                    JavaFileObject prev = log.useSource(w.sym.sourcefile);
+                    try {
+                        log.error("class.cant.write", w.sym, cause.getMessage());
+                    } finally {
+                        log.useSource(prev);
+                    }
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else {
+                    throw new Abort(cause);
+                }
+            }
+        }
+    }
+
+    /** Create and write a class file; called on a writer thread.
+     */
+    private JavaFileObject writeFile(Location location, String name, JavaFileObject sibling, byte[] bytes)
+            throws IOException {
+        JavaFileObject outFile
+            = fileManager.getJavaFileForOutput(location, name, JavaFileObject.Kind.CLASS, sibling);
+        OutputStream out = outFile.openOutputStream();
+        try {
+            out.write(bytes);
+            out.close();
+            out = null;
+        } finally {
+            if (out != null) {
+                // if we are propagating an exception, delete the file
+                out.close();
+                outFile.delete();
+            }
+        }
+        return outFile;
+    }
+
+    private static final ThreadFactory threadFactory = r -> {
+        Thread t = new Thread(r, "flintc-class-writer");
+        t.setDaemon(true);
+        return t;
+    };
+
+    /** A class file that has been scheduled to be written.
+     */
+    private static class PendingWrite {
+        final ClassSymbol sym;
+        final Future<JavaFileObject> result;
+
+        PendingWrite(ClassSymbol sym, Future<JavaFileObject> result) {
+            this.sym = sym;
+            this.result = result;
+        }
+    }
+}
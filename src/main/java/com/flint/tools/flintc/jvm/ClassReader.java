@@ -739,7 +739,7 @@ public class ClassReader {
             return syms.booleanType;
         case '[':
             sigp++;
-            return new ArrayType(sigToType(), syms.arrayClass);
+            return types.intern(new ArrayType(sigToType(), syms.arrayClass));
         case '(':
             sigp++;
             JCList<Type> argtypes = sigToTypes(')');
@@ -772,6 +772,17 @@ public class ClassReader {
 
     byte[] signatureBuffer = new byte[0];
     int sbp = 0;
+
+    /** Does the binary name in signatureBuffer[start..end) name a top
+     *  level class?
+     */
+    private boolean isTopLevelName(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (signatureBuffer[i] == (byte)'$')
+                return false;
+        }
+        return true;
+    }
     /** Convert class signature to type, where signature is implicit.
      */
     Type classSigToType() {
@@ -804,38 +815,45 @@ public class ClassReader {
                 ClassSymbol t = enterClass(names.fromUtf(signatureBuffer,
                                                          startSbp,
                                                          sbp - startSbp));
-                outer = new ClassType(outer, sigToTypes('>'), t) {
-                        boolean completed = false;
-                        @Override @DefinedBy(Api.LANGUAGE_MODEL)
-                        public Type getEnclosingType() {
-                            if (!completed) {
-                                completed = true;
-                                tsym.complete();
-                                Type enclosingType = tsym.type.getEnclosingType();
-                                if (enclosingType != Type.noType) {
-                                    JCList<Type> typeArgs =
-                                        super.getEnclosingType().allparams();
-                                    JCList<Type> typeParams =
-                                        enclosingType.allparams();
-                                    if (typeParams.length() != typeArgs.length()) {
-                                        // no "rare" types
-                                        super.setEnclosingType(types.erasure(enclosingType));
+                if (outer == Type.noType && types.internsTypes() &&
+                        isTopLevelName(startSbp, sbp)) {
+                    // a top level class has no enclosing type to find, so
+                    // the type may be shared through the type table
+                    outer = new ClassType(outer, sigToTypes('>'), t);
+                } else {
+                    outer = new ClassType(outer, sigToTypes('>'), t) {
+                            boolean completed = false;
+                            @Override @DefinedBy(Api.LANGUAGE_MODEL)
+                            public Type getEnclosingType() {
+                                if (!completed) {
+                                    completed = true;
+                                    tsym.complete();
+                                    Type enclosingType = tsym.type.getEnclosingType();
+                                    if (enclosingType != Type.noType) {
+                                        JCList<Type> typeArgs =
+                                            super.getEnclosingType().allparams();
+                                        JCList<Type> typeParams =
+                                            enclosingType.allparams();
+                                        if (typeParams.length() != typeArgs.length()) {
+                                            // no "rare" types
+                                            super.setEnclosingType(types.erasure(enclosingType));
+                                        } else {
+                                            super.setEnclosingType(types.subst(enclosingType,
+                                                                               typeParams,
+                                                                               typeArgs));
+                                        }
                                     } else {
-                                        super.setEnclosingType(types.subst(enclosingType,
-                                                                           typeParams,
-                                                                           typeArgs));
+                                        super.setEnclosingType(Type.noType);
                                     }
-                                } else {
-                                    super.setEnclosingType(Type.noType);
                                 }
+                                return super.getEnclosingType();
                             }
-                            return super.getEnclosingType();
-                        }
-                        @Override
-                        public void setEnclosingType(Type outer) {
-                            throw new UnsupportedOperationException();
-                        }
-                    };
+                            @Override
+                            public void setEnclosingType(Type outer) {
+                                throw new UnsupportedOperationException();
+                            }
+                        };
+                }
                 switch (signature[sigp++]) {
                 case ';':
                     if (sigp < signature.length && signature[sigp] == '.') {
@@ -851,7 +869,7 @@ public class ClassReader {
                         break;
                     } else {
                         sbp = startSbp;
-                        return outer;
+                        return types.intern(outer);
                     }
                 case '.':
                     signatureBuffer[sbp++] = (byte)'$';
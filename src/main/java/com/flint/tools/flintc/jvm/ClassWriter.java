@@ -1666,17 +1666,9 @@ public class ClassWriter extends ClassFile {
     public JavaFileObject writeClass(ClassSymbol c)
         throws IOException, PoolOverflow, StringOverflow
     {
-        String name = (c.owner.kind == MDL ? c.name : c.flatname).toString();
-        Location outLocn;
-        if (multiModuleMode) {
-            ModuleSymbol msym = c.owner.kind == MDL ? (ModuleSymbol) c.owner : c.packge().modle;
-            outLocn = fileManager.getLocationForModule(CLASS_OUTPUT, msym.name.toString());
-        } else {
-            outLocn = CLASS_OUTPUT;
-        }
         JavaFileObject outFile
-            = fileManager.getJavaFileForOutput(outLocn,
-                                               name,
+            = fileManager.getJavaFileForOutput(outputLocation(c),
+                                               outputName(c),
                                                JavaFileObject.Kind.CLASS,
                                                c.sourcefile);
         OutputStream out = outFile.openOutputStream();
@@ -1697,6 +1689,36 @@ public class ClassWriter extends ClassFile {
         return outFile; // may be null if write failed
     }
 
+    /** Emit a class file for a given class into memory, and leave the file
+     *  itself to be written by a background writer.
+     *  @param c      The class from which a class file is generated.
+     *  @param bg     The writer which creates and writes the file.
+     */
+    public void writeClass(ClassSymbol c, BackgroundClassWriter bg)
+        throws IOException, PoolOverflow, StringOverflow
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(DATA_BUF_SIZE);
+        writeClassFile(out, c);
+        bg.write(c, outputLocation(c), outputName(c), out.toByteArray());
+    }
+
+    /** The location to which the class file for a given class is written.
+     */
+    private Location outputLocation(ClassSymbol c) throws IOException {
+        if (multiModuleMode) {
+            ModuleSymbol msym = c.owner.kind == MDL ? (ModuleSymbol) c.owner : c.packge().modle;
+            return fileManager.getLocationForModule(CLASS_OUTPUT, msym.name.toString());
+        } else {
+            return CLASS_OUTPUT;
+        }
+    }
+
+    /** The name by which the class file for a given class is known to the file manager.
+     */
+    private String outputName(ClassSymbol c) {
+        return (c.owner.kind == MDL ? c.name : c.flatname).toString();
+    }
+
     /** Write class `c' to outstream `out'.
      */
     public void writeClassFile(OutputStream out, ClassSymbol c)
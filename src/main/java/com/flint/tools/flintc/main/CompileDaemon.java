@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package com.flint.tools.flintc.main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import com.flint.tools.flintc.file.ArchiveCache;
+import com.flint.tools.flintc.file.CacheFSInfo;
+import com.flint.tools.flintc.file.FSInfo;
+import com.flint.tools.flintc.file.JavacFileManager;
+import com.flint.tools.flintc.util.Context;
+
+/**
+ * A long-lived compiler process that accepts compile requests from
+ * {@link DaemonClient} over a loopback socket.
+ *
+ * <p>Each request is compiled in a fresh {@link Context}, exactly as by
+ * {@link Main#compile(String[])}, so no compiler state leaks from one request
+ * to the next.  What is kept between requests is the JIT-compiled code of
+ * this process, the file system information cached by {@link CacheFSInfo}
+ * (revalidated before each request), the archives opened by the file
+ * manager ({@link ArchiveCache}) and the shared {@code JRTIndex}.
+ *
+ * <p>The daemon serves one working directory, the one it was started in;
+ * requests from other directories are refused, and the client then compiles
+ * in-process.  Requests are handled one at a time.  The daemon advertises
+ * its port, and a secret that clients must present, in a port file that is
+ * readable only by its owner.  It deletes the file and exits when stopped,
+ * or when it has been idle for the given number of minutes.
+ *
+ * <pre>
+ *     java com.flint.tools.flintc.main.CompileDaemon [-portfile file] [-idle minutes]
+ * </pre>
+ *
+ * <p>The requests are compiled with the environment and system properties
+ * of the daemon, not of the client.
+ *
+ * <p><b>This is NOT part of any supported API.
+ * If you write code that depends on this, you do so at your own risk.
+ * This code and its internal interfaces are subject to change or
+ * deletion without notice.</b>
+ */
+public class CompileDaemon {
+
+    /** The version of the protocol spoken between the client and the daemon. */
+    static final int PROTOCOL_VERSION = 1;
+
+    /** The default name of the port file, relative to the working directory. */
+    static final String DEFAULT_PORT_FILE = ".flintc-daemon";
+
+    /** The system property used by the client to locate the port file. */
+    static final String PORT_FILE_PROPERTY = "flintc.daemon.portfile";
+
+    // request kinds
+    static final byte COMPILE = 'c';
+    static final byte STOP = 's';
+
+    // reply frames
+    static final byte OUT = 'o';
+    static final byte ERR = 'e';
+    static final byte EXIT = 'x';
+    static final byte REFUSED = 'r';
+
+    /** The largest number of chars sent in one output frame. */
+    static final int MAX_FRAME_CHARS = 8192;
+
+    private static final int DEFAULT_IDLE_MINUTES = 180;
+
+    public static void main(String[] args) throws IOException {
+        Path portFile = Paths.get(DEFAULT_PORT_FILE);
+        int idleMinutes = DEFAULT_IDLE_MINUTES;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-portfile":
+                        portFile = Paths.get(args[++i]);
+                        break;
+                    case "-idle":
+                        idleMinutes = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("usage: CompileDaemon [-portfile file] [-idle minutes]");
+            System.exit(Main.Result.CMDERR.exitCode);
+        }
+        new CompileDaemon(portFile, idleMinutes).run();
+    }
+
+    private final Path workingDirectory;
+    private final Path portFile;
+    private final int idleTimeout;
+    private final String secret;
+
+    private final CacheFSInfo fsInfo = new CacheFSInfo();
+    private final ArchiveCache archives = new ArchiveCache();
+    private int requests;
+
+    /**
+     * Create a daemon for the current working directory.
+     * @param portFile the file in which to advertise the port
+     * @param idleMinutes the number of idle minutes after which to exit, or 0 to never exit
+     */
+    public CompileDaemon(Path portFile, int idleMinutes) {
+        this.workingDirectory = Paths.get("").toAbsolutePath().normalize();
+        this.portFile = portFile.toAbsolutePath();
+        this.idleTimeout = Math.max(0, idleMinutes) * 60 * 1000;
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes)
+            sb.append(String.format("%02x", b & 0xff));
+        this.secret = sb.toString();
+    }
+
+    /**
+     * Serve requests until the daemon is stopped or has been idle for too long.
+     */
+    public void run() throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(idleTimeout);
+            writePortFile(server.getLocalPort());
+            note("serving " + workingDirectory + " on port " + server.getLocalPort());
+            boolean running = true;
+            while (running) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    note("idle timeout");
+                    break;
+                }
+                try (Socket s = socket) {
+                    running = serve(s);
+                } catch (IOException e) {
+                    note("request failed: " + e);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(portFile);
+            archives.close();
+        }
+    }
+
+    /**
+     * Handle one connection.
+     * @return false if the daemon was asked to stop
+     */
+    private boolean serve(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        int version = in.readInt();
+        String clientSecret = in.readUTF();
+        byte kind = in.readByte();
+        if (version != PROTOCOL_VERSION) {
+            refuse(out, "protocol version " + version + " is not supported");
+            return true;
+        }
+        if (!MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8),
+                                   clientSecret.getBytes(StandardCharsets.UTF_8))) {
+            refuse(out, "bad secret");
+            return true;
+        }
+
+        switch (kind) {
+            case STOP:
+                exit(out, Main.Result.OK.exitCode);
+                note("stopped");
+                return false;
+
+            case COMPILE:
+                String cwd = readString(in);
+                String[] args = new String[in.readInt()];
+                for (int i = 0; i < args.length; i++)
+                    args[i] = readString(in);
+                if (!Paths.get(cwd).toAbsolutePath().normalize().equals(workingDirectory)) {
+                    refuse(out, "daemon serves " + workingDirectory);
+                    return true;
+                }
+                long start = System.nanoTime();
+                int exitCode = compile(args, out);
+                exit(out, exitCode);
+                long elapsed = (System.nanoTime() - start) / 1000000;
+                note("request " + (++requests) + ": exit " + exitCode + " in " + elapsed + "ms; "
+                        + archives.getStatistics());
+                return true;
+
+            default:
+                refuse(out, "unknown request " + kind);
+                return true;
+        }
+    }
+
+    /**
+     * Compile one request in a fresh context that shares the caches of this daemon.
+     */
+    private int compile(String[] args, DataOutputStream out) {
+        PrintWriter stdOut = new PrintWriter(new FrameWriter(out, OUT));
+        PrintWriter stdErr = new PrintWriter(new FrameWriter(out, ERR));
+
+        fsInfo.removeStaleEntries();
+        Context context = new Context();
+        JavacFileManager.preRegister(context);
+        context.put(FSInfo.class, fsInfo);
+        archives.preRegister(context);
+
+        Main compiler = new Main("javac", stdOut, stdErr);
+        Main.Result result;
+        try {
+            result = compiler.compile(args, context);
+        } catch (RuntimeException | Error e) {
+            e.printStackTrace(stdErr);
+            result = Main.Result.ABNORMAL;
+        } finally {
+            if (compiler.fileManager instanceof JavacFileManager) {
+                try {
+                    ((JavacFileManager) compiler.fileManager).close();
+                } catch (IOException ex) {
+                    compiler.bugMessage(ex);
+                }
+            }
+            stdOut.flush();
+            stdErr.flush();
+        }
+        return result.exitCode;
+    }
+
+    private void writePortFile(int port) throws IOException {
+        Path dir = portFile.getParent();
+        Path tmp = dir.resolve(portFile.getFileName() + ".tmp");
+        Files.deleteIfExists(tmp);
+        if (Files.getFileStore(dir).supportsFileAttributeView("posix")) {
+            Files.createFile(tmp, PosixFilePermissions.asFileAttribute(
+                    PosixFilePermissions.fromString("rw-------")));
+        }
+        Files.write(tmp, Arrays.asList(String.valueOf(port), secret), StandardCharsets.UTF_8);
+        Files.move(tmp, portFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Write a string of any length; unlike writeUTF, this is not limited to 64K bytes.
+     */
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void refuse(DataOutputStream out, String reason) throws IOException {
+        out.writeByte(REFUSED);
+        out.writeUTF(reason);
+        out.flush();
+    }
+
+    private static void exit(DataOutputStream out, int exitCode) throws IOException {
+        out.writeByte(EXIT);
+        out.writeInt(exitCode);
+        out.flush();
+    }
+
+    private static void note(String message) {
+        System.err.println("flintc daemon: " + message);
+    }
+
+    /**
+     * A writer that sends its output to the client, one frame per flush.
+     * The log flushes its writers after each diagnostic, so diagnostics
+     * reach the client while the compilation is still running.
+     */
+    private static class FrameWriter extends Writer {
+        private final DataOutputStream out;
+        private final byte kind;
+        private final StringBuilder buf = new StringBuilder();
+
+        FrameWriter(DataOutputStream out, byte kind) {
+            this.out = out;
+            this.kind = kind;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            buf.append(cbuf, off, len);
+            if (buf.length() >= MAX_FRAME_CHARS)
+                flush();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                for (int i = 0; i < buf.length(); i += MAX_FRAME_CHARS) {
+                    out.writeByte(kind);
+                    out.writeUTF(buf.substring(i, Math.min(buf.length(), i + MAX_FRAME_CHARS)));
+                }
+                buf.setLength(0);
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package com.flint.tools.flintc.main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * A thin command line client for {@link CompileDaemon}.  It forwards its
+ * arguments and working directory to the daemon advertised in the port
+ * file, copies the compiler output to its own standard output and error
+ * streams as it arrives, and exits with the compiler's exit code.
+ *
+ * <p>When no daemon is running, or the daemon refuses the request, the
+ * arguments are compiled in this process instead, so that the client can
+ * always be used in place of the normal launcher.
+ *
+ * <pre>
+ *     java com.flint.tools.flintc.main.DaemonClient [javac options] [source files]
+ *     java com.flint.tools.flintc.main.DaemonClient --stop
+ * </pre>
+ *
+ * <p>The port file is {@code .flintc-daemon} in the working directory,
+ * unless the {@code flintc.daemon.portfile} system property names another.
+ *
+ * <p><b>This is NOT part of any supported API.
+ * If you write code that depends on this, you do so at your own risk.
+ * This code and its internal interfaces are subject to change or
+ * deletion without notice.</b>
+ */
+public class DaemonClient {
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Run the arguments on the daemon, or in this process if no daemon
+     * accepts them.
+     * @return the exit code of the compilation
+     */
+    public static int run(String[] args) {
+        boolean stop = (args.length == 1 && args[0].equals("--stop"));
+        Path portFile = Paths.get(System.getProperty(CompileDaemon.PORT_FILE_PROPERTY,
+                                                     CompileDaemon.DEFAULT_PORT_FILE));
+        int port;
+        String secret;
+        try {
+            List<String> lines = Files.readAllLines(portFile, StandardCharsets.UTF_8);
+            port = Integer.parseInt(lines.get(0));
+            secret = lines.get(1);
+        } catch (NoSuchFileException e) {
+            return stop ? Main.Result.OK.exitCode : compileInProcess(args);
+        } catch (IOException | RuntimeException e) {
+            warning("cannot read " + portFile + ": " + e);
+            return stop ? Main.Result.SYSERR.exitCode : compileInProcess(args);
+        }
+
+        boolean replied = false;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(CompileDaemon.PROTOCOL_VERSION);
+            out.writeUTF(secret);
+            if (stop) {
+                out.writeByte(CompileDaemon.STOP);
+            } else {
+                out.writeByte(CompileDaemon.COMPILE);
+                CompileDaemon.writeString(out, Paths.get("").toAbsolutePath().toString());
+                out.writeInt(args.length);
+                for (String arg : args)
+                    CompileDaemon.writeString(out, arg);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            while (true) {
+                byte kind = in.readByte();
+                replied = true;
+                switch (kind) {
+                    case CompileDaemon.OUT:
+                        System.out.print(in.readUTF());
+                        System.out.flush();
+                        break;
+                    case CompileDaemon.ERR:
+                        System.err.print(in.readUTF());
+                        System.err.flush();
+                        break;
+                    case CompileDaemon.EXIT:
+                        return in.readInt();
+                    case CompileDaemon.REFUSED:
+                        warning("request refused: " + in.readUTF());
+                        return stop ? Main.Result.SYSERR.exitCode : compileInProcess(args);
+                    default:
+                        throw new IOException("unexpected reply " + kind);
+                }
+            }
+        } catch (IOException e) {
+            if (replied) {
+                // output has already been copied; compiling again would repeat it
+                warning("connection to daemon lost: " + e);
+                return Main.Result.ABNORMAL.exitCode;
+            }
+            if (stop) {
+                warning("no daemon listening on port " + port);
+                return Main.Result.SYSERR.exitCode;
+            }
+            return compileInProcess(args);
+        }
+    }
+
+    private static int compileInProcess(String[] args) {
+        return com.flint.tools.flintc.Main.compile(args);
+    }
+
+    private static void warning(String message) {
+        System.err.println("flintc daemon client: " + message);
+    }
+}
@@ -0,0 +1,728 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package com.flint.tools.flintc.main;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+import com.flint.source.util.TaskEvent;
+import com.flint.source.util.TaskListener;
+import com.flint.tools.flintc.api.MultiTaskListener;
+import com.flint.tools.flintc.code.Flags;
+import com.flint.tools.flintc.code.Kinds.Kind;
+import com.flint.tools.flintc.code.Scope.LookupKind;
+import com.flint.tools.flintc.code.Symbol;
+import com.flint.tools.flintc.code.Symbol.ClassSymbol;
+import com.flint.tools.flintc.code.Symbol.MethodSymbol;
+import com.flint.tools.flintc.code.Symbol.VarSymbol;
+import com.flint.tools.flintc.code.Type;
+import com.flint.tools.flintc.file.ArchiveCache;
+import com.flint.tools.flintc.file.CacheFSInfo;
+import com.flint.tools.flintc.file.FSInfo;
+import com.flint.tools.flintc.file.JavacFileManager;
+import com.flint.tools.flintc.main.Main.Result;
+import com.flint.tools.flintc.util.Context;
+import com.flint.tools.flintc.util.DefinedBy;
+import com.flint.tools.flintc.util.DefinedBy.Api;
+import com.flint.tools.flintc.util.Dependencies;
+import com.flint.tools.flintc.util.Dependencies.CompletionCause;
+import com.flint.tools.flintc.util.Dependencies.GraphDependencies;
+import com.flint.tools.flintc.util.Log;
+import com.flint.tools.flintc.util.Log.PrefixKind;
+import com.flint.tools.flintc.util.Options;
+
+/**
+ * Incremental compilation, enabled by {@code -XDincremental[=file]}.
+ *
+ * <p>The build state is kept in a file, by default {@code .flintc-incremental}
+ * in the class output directory.  For each source file it records a digest of
+ * the file, the class files generated from it, a fingerprint of the API of each
+ * of its top-level classes, and the top-level classes its classes depended on,
+ * as recorded by {@link GraphDependencies}.
+ *
+ * <p>A build compiles the new and changed source files, and those whose class
+ * files are missing, with the class output directory at the front of the class
+ * path so that the class files of all other sources are reused.  It then
+ * compares the fingerprints of the classes it generated with the recorded
+ * ones.  The sources that depend on a class whose API changed or that was
+ * removed, and the sources in the package of a new class, are compiled in a
+ * further round, until no API changes.  Each round runs in a fresh context.
+ * The class files of removed sources, and of classes no longer generated, are
+ * deleted.  When the options or the jar files on the class path change, all
+ * sources are compiled.
+ *
+ * <p><b>This is NOT part of any supported API.
+ * If you write code that depends on this, you do so at your own risk.
+ * This code and its internal interfaces are subject to change or
+ * deletion without notice.</b>
+ */
+public class IncrementalBuild {
+
+    private static final String STORE_HEADER = "flintc-incremental";
+    private static final int STORE_VERSION = 1;
+    private static final String DEFAULT_STORE_NAME = ".flintc-incremental";
+
+    /** The flags of classes and members that are part of their API. */
+    private static final long API_FLAGS = Flags.ExtendedStandardFlags
+            | Flags.DEPRECATED | Flags.VARARGS | Flags.ENUM | Flags.ANNOTATION;
+
+    private final Main main;
+    private final String[] argv;
+    private final String[] expandedArgv;
+    private final Context context;
+    private final Log log;
+    private final Options options;
+    private final StandardJavaFileManager fileManager;
+    private final boolean verbose;
+
+    /** The class output directory. */
+    private Path outputDir;
+
+    /** The source files of this build. */
+    private final Set<Path> sources = new LinkedHashSet<>();
+
+    /** The build state, by source file. */
+    private final Map<Path, SourceState> store = new TreeMap<>();
+
+    /** The stamps of the source files that were read to check for changes. */
+    private final Map<Path, Stamp> stamps = new LinkedHashMap<>();
+
+    // state of the current round
+    private Set<Path> roundFiles;
+    private Map<Path, SourceState> roundResults;
+    private StandardJavaFileManager roundFileManager;
+
+    /**
+     * Create an incremental build.
+     * @param main the compiler whose options describe the build
+     * @param argv the arguments, before expansion of @-files
+     * @param expandedArgv the arguments, after expansion of @-files
+     * @param context the context in which the arguments were processed
+     */
+    IncrementalBuild(Main main, String[] argv, String[] expandedArgv, Context context) {
+        this.main = main;
+        this.argv = argv;
+        this.expandedArgv = expandedArgv;
+        this.context = context;
+        this.log = Log.instance(context);
+        this.options = Options.instance(context);
+        this.fileManager = (StandardJavaFileManager) context.get(JavaFileManager.class);
+        this.verbose = options.isSet(Option.VERBOSE);
+    }
+
+    /**
+     * Bring the class files of the given source files up to date.
+     */
+    Result run(Collection<JavaFileObject> fileObjects) {
+        Iterable<? extends Path> out = fileManager.getLocationAsPaths(StandardLocation.CLASS_OUTPUT);
+        if (out == null || !out.iterator().hasNext()) {
+            main.error("err.incremental.no.output.dir");
+            return Result.CMDERR;
+        }
+        outputDir = out.iterator().next().toAbsolutePath().normalize();
+
+        String storeOption = options.get("incremental");
+        Path storeFile = storeOption.equals("incremental")
+                ? outputDir.resolve(DEFAULT_STORE_NAME)
+                : Paths.get(storeOption).toAbsolutePath();
+
+        for (JavaFileObject fo : fileObjects)
+            sources.add(normalize(fileManager.asPath(fo)));
+
+        String optionsDigest = optionsDigest();
+        boolean full = !readStore(storeFile, optionsDigest);
+
+        // find the changed sources, and forget the removed ones
+        Set<Path> toCompile = new LinkedHashSet<>();
+        Set<String> changed = new HashSet<>();
+        for (Path p : sources) {
+            if (full || !isUpToDate(p, store.get(p)))
+                toCompile.add(p);
+        }
+        for (Path p : new ArrayList<>(store.keySet())) {
+            if (!sources.contains(p)) {
+                SourceState removed = store.remove(p);
+                deleteOutputs(removed.outputs);
+                changed.addAll(removed.api.keySet());
+            }
+        }
+        toCompile.addAll(dependents(changed, Collections.emptySet()));
+
+        if (toCompile.isEmpty() && verbose)
+            log.printVerbose("incremental.up.to.date", sources.size());
+
+        Result result = Result.OK;
+        int round = 0;
+        while (!toCompile.isEmpty()) {
+            round++;
+            if (verbose)
+                log.printVerbose("incremental.round", round, toCompile.size(), sources.size());
+
+            Map<Path, SourceState> compiled = new LinkedHashMap<>();
+            result = compileRound(toCompile, compiled);
+            if (!result.isOK()) {
+                // compile these again next time, and keep what was recorded for
+                // them so that the API changes are still found then
+                for (Path p : toCompile) {
+                    SourceState s = store.get(p);
+                    if (s != null)
+                        s.stamp = null;
+                }
+                break;
+            }
+
+            Set<String> changedApis = new HashSet<>();
+            Set<String> addedClasses = new HashSet<>();
+            for (Path p : toCompile) {
+                SourceState now = compiled.computeIfAbsent(p, SourceState::new);
+                SourceState before = store.get(p);
+                now.deps.removeAll(now.api.keySet());
+                now.stamp = stamps.get(p);
+                if (now.stamp == null)
+                    now.stamp = (before != null && before.stamp != null) ? before.stamp : Stamp.of(p);
+                if (before != null) {
+                    Set<String> stale = new HashSet<>(before.outputs);
+                    stale.removeAll(now.outputs);
+                    deleteOutputs(stale);
+                    for (Map.Entry<String, String> e : before.api.entrySet()) {
+                        if (!e.getValue().equals(now.api.get(e.getKey())))
+                            changedApis.add(e.getKey());
+                    }
+                }
+                for (String c : now.api.keySet()) {
+                    if (before == null || !before.api.containsKey(c))
+                        addedClasses.add(c);
+                }
+                store.put(p, now);
+            }
+
+            Set<Path> next = dependents(changedApis, addedClasses);
+            next.removeAll(toCompile);
+            toCompile = next;
+        }
+
+        try {
+            writeStore(storeFile, optionsDigest);
+        } catch (IOException e) {
+            log.printLines(PrefixKind.JAVAC, "err.incremental.cant.write.store", storeFile, e.getMessage());
+            if (result.isOK())
+                result = Result.SYSERR;
+        }
+        return result;
+    }
+
+    /**
+     * Compile one round in a fresh context.  The context shares the file system
+     * caches of the context of the build.
+     */
+    private Result compileRound(Set<Path> files, Map<Path, SourceState> results) {
+        roundFiles = files;
+        roundResults = results;
+
+        Context roundContext = new Context();
+        JavacFileManager.preRegister(roundContext);
+        FSInfo fsInfo = context.get(FSInfo.class);
+        if (fsInfo instanceof CacheFSInfo) {
+            ((CacheFSInfo) fsInfo).removeStaleEntries();
+            roundContext.put(FSInfo.class, fsInfo);
+        }
+        ArchiveCache archives = ArchiveCache.instance(context);
+        if (archives != null)
+            archives.preRegister(roundContext);
+
+        Main compiler = new Main(main.ownName, main.stdOut, main.stdErr);
+        compiler.incrementalBuild = this;
+        try {
+            return compiler.compile(argv, roundContext);
+        } finally {
+            if (compiler.fileManager instanceof JavacFileManager) {
+                try {
+                    ((JavacFileManager) compiler.fileManager).close();
+                } catch (IOException ex) {
+                    compiler.bugMessage(ex);
+                }
+            }
+            roundFiles = null;
+            roundResults = null;
+            roundFileManager = null;
+        }
+    }
+
+    /**
+     * Prepare the context of a round: put the class output directory at the
+     * front of the class path and record what the round generates.
+     */
+    void initRound(Context roundContext) {
+        roundFileManager = (StandardJavaFileManager) roundContext.get(JavaFileManager.class);
+        List<Path> classPath = new ArrayList<>();
+        classPath.add(outputDir);
+        Iterable<? extends Path> userClassPath = roundFileManager.getLocationAsPaths(StandardLocation.CLASS_PATH);
+        if (userClassPath != null) {
+            for (Path p : userClassPath)
+                classPath.add(p);
+        }
+        try {
+            roundFileManager.setLocationFromPaths(StandardLocation.CLASS_PATH, classPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        MultiTaskListener.instance(roundContext).add(new RoundListener(roundContext));
+    }
+
+    /** The source files to be compiled in the current round. */
+    Collection<JavaFileObject> getRoundFiles() {
+        List<JavaFileObject> files = new ArrayList<>();
+        for (JavaFileObject fo : roundFileManager.getJavaFileObjectsFromPaths(roundFiles))
+            files.add(fo);
+        return files;
+    }
+
+    /**
+     * Records the API, class files and dependencies of the sources compiled in a round.
+     */
+    private class RoundListener implements TaskListener {
+        private final Context roundContext;
+
+        RoundListener(Context roundContext) {
+            this.roundContext = roundContext;
+        }
+
+        @Override @DefinedBy(Api.COMPILER_TREE)
+        public void started(TaskEvent e) {
+        }
+
+        @Override @DefinedBy(Api.COMPILER_TREE)
+        public void finished(TaskEvent e) {
+            switch (e.getKind()) {
+                case ANALYZE: {
+                    ClassSymbol c = (ClassSymbol) e.getTypeElement();
+                    SourceState s = stateFor(e.getSourceFile());
+                    if (s != null && c != null && c.owner.kind == Kind.PCK)
+                        s.api.put(c.flatname.toString(), fingerprint(c));
+                    break;
+                }
+                case GENERATE: {
+                    ClassSymbol c = (ClassSymbol) e.getTypeElement();
+                    SourceState s = stateFor(e.getSourceFile());
+                    if (s != null && c != null)
+                        s.outputs.add(c.flatname.toString());
+                    break;
+                }
+                case COMPILATION:
+                    recordDependencies(Dependencies.instance(roundContext));
+                    break;
+            }
+        }
+
+        private void recordDependencies(Dependencies dependencies) {
+            if (!(dependencies instanceof GraphDependencies))
+                return;
+            for (GraphDependencies.Node n : ((GraphDependencies) dependencies).getNodes()) {
+                ClassSymbol c = topLevelClass(n.data);
+                SourceState s = (c == null) ? null : stateFor(c.sourcefile);
+                if (s == null)
+                    continue;
+                for (CompletionCause cause : CompletionCause.values()) {
+                    for (GraphDependencies.Node d : n.getDependenciesByKind(cause)) {
+                        ClassSymbol dep = topLevelClass(d.data);
+                        if (dep != null)
+                            s.deps.add(dep.flatname.toString());
+                    }
+                }
+            }
+        }
+
+        /** Like outermostClass, but also for the special symbols of Symtab. */
+        private ClassSymbol topLevelClass(ClassSymbol c) {
+            Symbol sym = c;
+            while (sym.owner != null && sym.owner.kind != Kind.PCK)
+                sym = sym.owner;
+            return (sym instanceof ClassSymbol && sym.owner != null) ? (ClassSymbol) sym : null;
+        }
+
+        private SourceState stateFor(JavaFileObject fo) {
+            if (fo == null)
+                return null;
+            Path p;
+            try {
+                p = normalize(roundFileManager.asPath(fo));
+            } catch (IllegalArgumentException | UnsupportedOperationException e) {
+                return null;
+            }
+            return roundFiles.contains(p) ? roundResults.computeIfAbsent(p, SourceState::new) : null;
+        }
+    }
+
+    /**
+     * Get the sources of this build that depend on one of the changed classes,
+     * or that are in the package of one of the added classes.
+     */
+    private Set<Path> dependents(Set<String> changed, Set<String> added) {
+        Set<String> addedPackages = new HashSet<>();
+        for (String c : added)
+            addedPackages.add(packageOf(c));
+        Set<Path> result = new LinkedHashSet<>();
+        for (Map.Entry<Path, SourceState> e : store.entrySet()) {
+            SourceState s = e.getValue();
+            if (!sources.contains(e.getKey()))
+                continue;
+            if (!Collections.disjoint(s.deps, changed)) {
+                result.add(e.getKey());
+            } else if (!addedPackages.isEmpty()) {
+                for (String c : s.api.keySet()) {
+                    if (addedPackages.contains(packageOf(c))) {
+                        result.add(e.getKey());
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String packageOf(String className) {
+        int sep = className.lastIndexOf('.');
+        return (sep == -1) ? "" : className.substring(0, sep);
+    }
+
+    /**
+     * Whether the source is unchanged since it was recorded, and its class
+     * files still exist.  The digest is only computed when the size or the
+     * modification time has changed.
+     */
+    private boolean isUpToDate(Path p, SourceState s) {
+        if (s == null || s.stamp == null)
+            return false;
+        Stamp now = Stamp.of(p);
+        if (now == null)
+            return false;
+        if (now.lastModified != s.stamp.lastModified || now.size != s.stamp.size) {
+            now.digest = digest(p);
+            stamps.put(p, now);
+            if (now.digest == null || !now.digest.equals(s.stamp.digest))
+                return false;
+            s.stamp = now;
+        }
+        for (String c : s.outputs) {
+            if (!Files.exists(classFile(c)))
+                return false;
+        }
+        return true;
+    }
+
+    private Path classFile(String flatname) {
+        return outputDir.resolve(flatname.replace('.', File.separatorChar) + ".class");
+    }
+
+    private void deleteOutputs(Collection<String> flatnames) {
+        for (String c : flatnames) {
+            try {
+                Files.deleteIfExists(classFile(c));
+            } catch (IOException ignore) {
+                // the class file will be overwritten or is harmless
+            }
+        }
+    }
+
+    /**
+     * A digest of the options, and of the jar files on the class paths.  The
+     * source files are left out, so that adding or removing a source does not
+     * force a full build.
+     */
+    private String optionsDigest() {
+        List<String> lines = new ArrayList<>();
+        for (String arg : expandedArgv) {
+            if (!sources.contains(normalizeArg(arg)))
+                lines.add(arg);
+        }
+        for (StandardLocation location : new StandardLocation[] {
+                StandardLocation.PLATFORM_CLASS_PATH, StandardLocation.CLASS_PATH,
+                StandardLocation.ANNOTATION_PROCESSOR_PATH }) {
+            Iterable<? extends Path> path = fileManager.getLocationAsPaths(location);
+            if (path == null)
+                continue;
+            for (Path p : path) {
+                Stamp s = Files.isRegularFile(p) ? Stamp.of(p) : null;
+                lines.add(location + " " + p + (s == null ? "" : " " + s.lastModified + " " + s.size));
+            }
+        }
+        return digest(lines);
+    }
+
+    private static Path normalizeArg(String arg) {
+        try {
+            return normalize(Paths.get(arg));
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private static Path normalize(Path p) {
+        return p.toAbsolutePath().normalize();
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="API fingerprints">
+
+    /**
+     * A digest of the API of a top-level class: the non-private members of the
+     * class and of its member classes, with their flags, types, constant values
+     * and annotations.
+     */
+    static String fingerprint(ClassSymbol c) {
+        List<String> lines = new ArrayList<>();
+        describe(c, c.flatname.toString(), lines);
+        Collections.sort(lines);
+        return digest(lines);
+    }
+
+    private static void describe(ClassSymbol c, String name, List<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(name).append(" class ").append(Long.toHexString(c.flags() & API_FLAGS))
+          .append(' ').append(c.type);
+        for (Type tv : c.type.getTypeArguments())
+            sb.append(' ').append(tv).append(" extends ").append(tv.getUpperBound());
+        sb.append(" extends ").append(c.getSuperclass())
+          .append(" implements ").append(c.getInterfaces())
+          .append(' ').append(c.getRawAttributes());
+        lines.add(sb.toString());
+
+        for (Symbol m : c.members().getSymbols(LookupKind.NON_RECURSIVE)) {
+            if ((m.flags() & (Flags.PRIVATE | Flags.SYNTHETIC)) != 0)
+                continue;
+            switch (m.kind) {
+                case TYP:
+                    describe((ClassSymbol) m, name + "." + m.name, lines);
+                    break;
+                case VAR: {
+                    Object constValue = ((m.flags() & Flags.FINAL) != 0)
+                            ? ((VarSymbol) m).getConstValue()
+                            : null;
+                    lines.add(name + "." + m.name + " field " + Long.toHexString(m.flags() & API_FLAGS)
+                            + ' ' + m.type + " = " + constValue + ' ' + m.getRawAttributes());
+                    break;
+                }
+                case MTH:
+                    lines.add(name + "." + m.name + " method " + Long.toHexString(m.flags() & API_FLAGS)
+                            + ' ' + m.type + " throws " + m.type.getThrownTypes()
+                            + " default " + ((MethodSymbol) m).defaultValue
+                            + ' ' + m.getRawAttributes());
+                    break;
+            }
+        }
+    }
+
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Build state">
+
+    /** The size, modification time and digest of a source file. */
+    static class Stamp {
+        final long lastModified;
+        final long size;
+        String digest;
+
+        Stamp(long lastModified, long size, String digest) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.digest = digest;
+        }
+
+        static Stamp of(Path p) {
+            try {
+                BasicFileAttributes attr = Files.readAttributes(p, BasicFileAttributes.class);
+                return new Stamp(attr.lastModifiedTime().toMillis(), attr.size(), null);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    /** What is recorded for a source file. */
+    static class SourceState {
+        final Path path;
+        /** The stamp of the source that was compiled, or null if it must be compiled again. */
+        Stamp stamp;
+        /** The API fingerprints of the top-level classes, by flat name. */
+        final Map<String, String> api = new TreeMap<>();
+        /** The flat names of the generated class files. */
+        final Set<String> outputs = new TreeSet<>();
+        /** The flat names of the top-level classes this source depends on. */
+        final Set<String> deps = new TreeSet<>();
+
+        SourceState(Path path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * Read the build state.
+     * @return false if there is no usable state for the current options, and
+     *         all sources must be compiled
+     */
+    private boolean readStore(Path storeFile, String optionsDigest) {
+        try (BufferedReader in = Files.newBufferedReader(storeFile, StandardCharsets.UTF_8)) {
+            String[] header = in.readLine().split("\t");
+            if (!header[0].equals(STORE_HEADER) || Integer.parseInt(header[1]) != STORE_VERSION)
+                throw new IllegalArgumentException(header[0]);
+            SourceState current = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] f = line.split("\t", -1);
+                switch (f[0]) {
+                    case "S":
+                        current = new SourceState(Paths.get(f[1]));
+                        if (!f[4].isEmpty())
+                            current.stamp = new Stamp(Long.parseLong(f[2]), Long.parseLong(f[3]), f[4]);
+                        store.put(current.path, current);
+                        break;
+                    case "C":
+                        current.api.put(f[1], f[2]);
+                        break;
+                    case "O":
+                        current.outputs.add(f[1]);
+                        break;
+                    case "D":
+                        current.deps.add(f[1]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException(f[0]);
+                }
+            }
+            return header[2].equals(optionsDigest);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException | RuntimeException e) {
+            if (verbose)
+                log.printVerbose("incremental.store.ignored", storeFile);
+            store.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Write the build state.  Only the dependencies on classes of this build
+     * are kept.
+     */
+    private void writeStore(Path storeFile, String optionsDigest) throws IOException {
+        Set<String> classes = new HashSet<>();
+        for (SourceState s : store.values())
+            classes.addAll(s.api.keySet());
+
+        Path tmp = storeFile.resolveSibling(storeFile.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            out.write(STORE_HEADER + "\t" + STORE_VERSION + "\t" + optionsDigest);
+            out.newLine();
+            for (SourceState s : store.values()) {
+                Stamp stamp = s.stamp;
+                if (stamp != null && stamp.digest == null)
+                    stamp.digest = digest(s.path);
+                if (stamp == null || stamp.digest == null)
+                    out.write("S\t" + s.path + "\t0\t0\t");
+                else
+                    out.write("S\t" + s.path + "\t" + stamp.lastModified + "\t" + stamp.size + "\t" + stamp.digest);
+                out.newLine();
+                for (Map.Entry<String, String> e : s.api.entrySet()) {
+                    out.write("C\t" + e.getKey() + "\t" + e.getValue());
+                    out.newLine();
+                }
+                for (String c : s.outputs) {
+                    out.write("O\t" + c);
+                    out.newLine();
+                }
+                for (String c : s.deps) {
+                    if (classes.contains(c)) {
+                        out.write("D\t" + c);
+                        out.newLine();
+                    }
+                }
+            }
+        }
+        Files.move(tmp, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // </editor-fold>
+
+    private static String digest(Path p) {
+        try {
+            return toHex(newDigest().digest(Files.readAllBytes(p)));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String digest(List<String> lines) {
+        MessageDigest md = newDigest();
+        for (String line : lines) {
+            md.update(line.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) '\n');
+        }
+        return toHex(md.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        return sb.toString();
+    }
+}
@@ -26,16 +26,24 @@
 package com.flint.tools.flintc.main;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.Locale;
 import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.Queue;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import javax.annotation.processing.Processor;
@@ -60,6 +68,7 @@ import com.flint.tools.flintc.comp.Annotate;
 import com.flint.tools.flintc.comp.Attr;
 import com.flint.tools.flintc.comp.AttrContext;
 import com.flint.tools.flintc.comp.Check;
+import com.flint.tools.flintc.comp.DeferredAttr;
 import com.flint.tools.flintc.comp.CompileStates;
 import com.flint.tools.flintc.comp.Enter;
 import com.flint.tools.flintc.comp.Env;
@@ -69,7 +78,9 @@ import com.flint.tools.flintc.comp.Lower;
 import com.flint.tools.flintc.comp.Modules;
 import com.flint.tools.flintc.comp.Todo;
 import com.flint.tools.flintc.comp.TransTypes;
+import com.flint.tools.flintc.file.BaseFileManager;
 import com.flint.tools.flintc.file.JavacFileManager;
+import com.flint.tools.flintc.jvm.BackgroundClassWriter;
 import com.flint.tools.flintc.jvm.ClassReader;
 import com.flint.tools.flintc.jvm.ClassWriter;
 import com.flint.tools.flintc.jvm.Gen;
@@ -216,7 +227,18 @@ public class JavaCompiler {
          * Means output might be generated for some classes in a compilation unit
          * and not others.
          */
-        BY_TODO;
+        BY_TODO,
+
+        /**
+         * Like {@code BY_TODO}, but as soon as an entry on the todo list has
+         * been generated, release the compiler state retained for it: its
+         * attribution environment, the desugared trees and pruned trees of the
+         * classes generated from it and, once all the classes in a source file
+         * have been processed, the end positions recorded for that file.
+         * This keeps the memory used by the latter phases proportional to the
+         * size of a class rather than to the size of the compilation.
+         */
+        STREAMING;
 
         static CompilePolicy decode(String option) {
             if (option == null)
@@ -231,6 +253,8 @@ public class JavaCompiler {
                 return BY_FILE;
             else if (option.equals("bytodo"))
                 return BY_TODO;
+            else if (option.equals("streaming"))
+                return STREAMING;
             else
                 return DEFAULT_COMPILE_POLICY;
         }
@@ -282,6 +306,18 @@ public class JavaCompiler {
      */
     protected ClassWriter writer;
 
+    /** The background writer for class files.
+     */
+    protected BackgroundClassWriter backgroundWriter;
+
+    /** The per-phase profiler.
+     */
+    protected PhaseProfiler profiler;
+
+    /** The parser's lookahead statistics, or null if not enabled.
+     */
+    protected LookaheadStatistics lookaheadStatistics;
+
     /** The native header writer.
      */
     protected JNIWriter jniWriter;
@@ -406,6 +442,9 @@ public class JavaCompiler {
         reader = ClassReader.instance(context);
         make = TreeMaker.instance(context);
         writer = ClassWriter.instance(context);
+        backgroundWriter = BackgroundClassWriter.instance(context);
+        profiler = PhaseProfiler.instance(context);
+        lookaheadStatistics = LookaheadStatistics.instance(context);
         jniWriter = JNIWriter.instance(context);
         enter = Enter.instance(context);
         todo = Todo.instance(context);
@@ -455,6 +494,13 @@ public class JavaCompiler {
 
         verboseCompilePolicy = options.isSet("verboseCompilePolicy");
 
+        parseThreads = options.getThreadCount("parallelParse");
+        flowThreads = options.getThreadCount("parallelFlow");
+        utf8Reader = options.isSet("utf8Reader");
+        nameTableStats = options.isSet("nameTableStats");
+        cacheStats = options.isSet("cacheStats");
+        treeCopyStats = options.isSet("treeCopyStats");
+
         if (options.isSet("should-stop.at") &&
             CompileState.valueOf(options.get("should-stop.at")) == CompileState.ATTR)
             compilePolicy = CompilePolicy.ATTR_ONLY;
@@ -532,6 +578,37 @@ public class JavaCompiler {
      */
     protected boolean werror;
 
+    /** The number of threads used to parse source files concurrently,
+     *  or 1 if files are parsed one at a time on the compiler thread.
+     */
+    protected int parseThreads;
+
+    /** The number of threads used to analyze the flow of top-level classes
+     *  concurrently, or 1 if classes are analyzed one at a time on the
+     *  compiler thread.
+     */
+    protected int flowThreads;
+
+    /** Switch: scan UTF-8 sources directly from their bytes, rather than
+     *  decoding them first (-XDutf8Reader)
+     */
+    protected boolean utf8Reader;
+
+    /** Switch: report the memory used by the name table at the end of
+     *  the compilation (-XDnameTableStats)
+     */
+    protected boolean nameTableStats;
+
+    /** Switch: report the use of the caches of the compiler at the end
+     *  of the compilation (-XDcacheStats)
+     */
+    protected boolean cacheStats;
+
+    /** Switch: report the number of tree nodes copied for speculative
+     *  attribution at the end of the compilation (-XDtreeCopyStats)
+     */
+    protected boolean treeCopyStats;
+
     /** Switch: is annotation processing requested explicitly via
      * CompilationTask.setProcessors?
      */
@@ -622,6 +699,12 @@ public class JavaCompiler {
     public CharSequence readSource(JavaFileObject filename) {
         try {
             inputFiles.add(filename);
+            if (utf8Reader && fileManager instanceof BaseFileManager) {
+                ByteBuffer bytes = ((BaseFileManager) fileManager).getUtf8Content(filename);
+                Utf8Source source = (bytes != null) ? Utf8Source.of(bytes) : null;
+                if (source != null)
+                    return source;
+            }
             return filename.getCharContent(false);
         } catch (IOException e) {
             log.error("error.reading.file", filename, JavacFileManager.getMessage(e));
@@ -646,9 +729,14 @@ public class JavaCompiler {
                 keepComments = true;
                 genEndPos = true;
             }
-            Parser parser = parserFactory.newParser(content, keepComments(), genEndPos,
-                                lineDebugInfo, filename.isNameCompatible("module-info", Kind.SOURCE));
-            tree = parser.parseCompilationUnit();
+            profiler.start(PhaseProfiler.Phase.PARSE, filename);
+            try {
+                Parser parser = parserFactory.newParser(content, keepComments(), genEndPos,
+                                    lineDebugInfo, filename.isNameCompatible("module-info", Kind.SOURCE));
+                tree = parser.parseCompilationUnit();
+            } finally {
+                profiler.end();
+            }
             if (verbose) {
                 log.printVerbose("parsing.done", Long.toString(elapsed(msec)));
             }
@@ -762,11 +850,30 @@ public class JavaCompiler {
      *  @param env    The attribution environment of the outermost class
      *                containing this class.
      *  @param cdef   The class definition from which code is generated.
+     *  @param background  Whether the class file may be written by the
+     *                background writer, in which case null is returned.
      */
-    JavaFileObject genCode(Env<AttrContext> env, JCClassDecl cdef) throws IOException {
+    JavaFileObject genCode(Env<AttrContext> env, JCClassDecl cdef, boolean background) throws IOException {
         try {
-            if (gen.genClass(env, cdef) && (errorCount() == 0))
-                return writer.writeClass(cdef.sym);
+            boolean generated;
+            profiler.start(PhaseProfiler.Phase.GENERATE, env.toplevel.sourcefile);
+            try {
+                generated = gen.genClass(env, cdef);
+            } finally {
+                profiler.end();
+            }
+            if (generated && (errorCount() == 0)) {
+                profiler.start(PhaseProfiler.Phase.CLASSWRITER, env.toplevel.sourcefile);
+                try {
+                    if (background && backgroundWriter.isEnabled()) {
+                        writer.writeClass(cdef.sym, backgroundWriter);
+                        return null;
+                    }
+                    return writer.writeClass(cdef.sym);
+                } finally {
+                    profiler.end();
+                }
+            }
         } catch (ClassWriter.PoolOverflow ex) {
             log.error(cdef.pos(), "limit.pool");
         } catch (ClassWriter.StringOverflow ex) {
@@ -985,6 +1092,15 @@ public class JavaCompiler {
                     generate(desugar(flow(attribute(todo.remove()))));
                 break;
 
+            case STREAMING:
+                while (!todo.isEmpty()) {
+                    Env<AttrContext> env = todo.remove();
+                    Queue<Pair<Env<AttrContext>, JCClassDecl>> classes = desugar(flow(attribute(env)));
+                    generate(classes);
+                    release(env, classes);
+                }
+                break;
+
             default:
                 Assert.error("unknown compile policy");
             }
@@ -992,6 +1108,8 @@ public class JavaCompiler {
             if (devVerbose)
                 ex.printStackTrace(System.err);
         } finally {
+            flushClassFiles();
+
             if (verbose) {
                 elapsed_msec = elapsed(start_msec);
                 log.printVerbose("total", Long.toString(elapsed_msec));
@@ -1003,6 +1121,23 @@ public class JavaCompiler {
                 printCount("error", errorCount());
                 printCount("warn", warningCount());
             }
+            profiler.writeReport();
+            if (lookaheadStatistics != null)
+                lookaheadStatistics.print(log);
+            if (nameTableStats) {
+                String footprint = names.table.footprint();
+                if (footprint != null)
+                    log.printRawLines(Log.WriterKind.NOTICE, "[names: " + footprint + "]");
+            }
+            if (cacheStats) {
+                for (Caches.Stats stats : Caches.instance(context).statistics())
+                    log.printRawLines(Log.WriterKind.NOTICE, "[cache " + stats + "]");
+            }
+            if (treeCopyStats) {
+                log.printRawLines(Log.WriterKind.NOTICE,
+                        "[speculative trees: " + DeferredAttr.instance(context).copyStatistics() + "]");
+            }
+
             if (!taskListener.isEmpty()) {
                 taskListener.finished(new TaskEvent(TaskEvent.Kind.COMPILATION));
             }
@@ -1029,18 +1164,173 @@ public class JavaCompiler {
        if (shouldStop(CompileState.PARSE))
            return JCList.nil();
 
+        // task listeners are not expected to be thread-safe, so
+        // only parse concurrently if there are none
+        boolean concurrent = parseThreads > 1 && taskListener.isEmpty();
+
         //parse all files
         ListBuffer<JCCompilationUnit> trees = new ListBuffer<>();
-        Set<JavaFileObject> filesSoFar = new HashSet<>();
+        Set<JavaFileObject> filesSoFar = new LinkedHashSet<>();
         for (JavaFileObject fileObject : fileObjects) {
             if (!filesSoFar.contains(fileObject)) {
                 filesSoFar.add(fileObject);
-                trees.append(parse(fileObject));
+                if (!concurrent)
+                    trees.append(parse(fileObject));
             }
         }
-        return trees.toList();
+        return concurrent ? parseFilesConcurrently(filesSoFar) : trees.toList();
     }
 
+    /**
+     * Parses a list of files on a pool of worker threads. Each worker has
+     * its own tree maker and log, and shares the (thread-safe) name table and
+     * tokens of this compiler. The source of each file is still read on
+     * the compiler thread, since the file manager's content and buffer caches
+     * are not thread-safe, but each file is handed to the pool as soon as it
+     * has been read. The resulting trees, and any diagnostics reported while
+     * parsing them, are merged back in the order of the input files.
+     */
+    private JCList<JCCompilationUnit> parseFilesConcurrently(Collection<JavaFileObject> fileObjects) {
+        int nthreads = Math.min(parseThreads, fileObjects.size());
+        BlockingQueue<ParseWorker> workers = new LinkedBlockingQueue<>();
+        for (int i = 0; i < nthreads; i++)
+            workers.add(new ParseWorker());
+        ForkJoinPool pool = new ForkJoinPool(nthreads);
+        try {
+            ListBuffer<Pair<Queue<JCDiagnostic>, Future<ParseResult>>> results = new ListBuffer<>();
+            for (JavaFileObject fileObject : fileObjects) {
+                JavaFileObject prev = log.useSource(fileObject);
+                Log.DeferredDiagnosticHandler readHandler = new Log.DeferredDiagnosticHandler(log);
+                CharSequence content;
+                try {
+                    content = readSource(fileObject);
+                } finally {
+                    log.popDiagnosticHandler(readHandler);
+                    log.useSource(prev);
+                }
+                results.append(new Pair<>(readHandler.getDiagnostics(), pool.submit(() -> {
+                    ParseWorker w = workers.take();
+                    try {
+                        return w.parse(fileObject, content);
+                    } finally {
+                        workers.add(w);
+                    }
+                })));
+            }
+
+            ListBuffer<JCCompilationUnit> trees = new ListBuffer<>();
+            for (Pair<Queue<JCDiagnostic>, Future<ParseResult>> p : results) {
+                for (JCDiagnostic d : p.fst)
+                    log.report(d);
+                ParseResult r = p.snd.get();
+                JavaFileObject filename = r.tree.sourcefile;
+                if (verbose && r.parsed) {
+                    log.printVerbose("parsing.started", filename);
+                    log.printVerbose("parsing.done", Long.toString(r.elapsed));
+                }
+                JavaFileObject prev = log.useSource(filename);
+                try {
+                    if (r.tree.endPositions != null)
+                        log.setEndPosTable(filename, r.tree.endPositions);
+                    for (JCDiagnostic d : r.diagnostics)
+                        log.report(d);
+                } finally {
+                    log.useSource(prev);
+                }
+                trees.append(r.tree);
+            }
+            return trees.toList();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new Abort(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new Abort(cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+    // where
+        /** The tree and the diagnostics obtained by parsing one file on a worker thread.
+         */
+        private static class ParseResult {
+            final JCCompilationUnit tree;
+            final JCList<JCDiagnostic> diagnostics;
+            final boolean parsed;
+            final long elapsed;
+
+            ParseResult(JCCompilationUnit tree, JCList<JCDiagnostic> diagnostics,
+                        boolean parsed, long elapsed) {
+                this.tree = tree;
+                this.diagnostics = diagnostics;
+                this.parsed = parsed;
+                this.elapsed = elapsed;
+            }
+        }
+
+        /** The per-thread state used to parse files concurrently: a parser factory
+         *  with its own tree maker, and a private log whose diagnostics are
+         *  collected for later replay on the compiler's log.
+         */
+        private class ParseWorker {
+            final Log workerLog;
+            final ParserFactory workerParserFactory;
+            final TreeMaker workerMake;
+            ListBuffer<JCDiagnostic> diagnostics = new ListBuffer<>();
+
+            ParseWorker() {
+                Context workerContext = new Context();
+                Options.instance(workerContext).putAll(options);
+                workerContext.put(Log.outKey, log.getWriter(WriterKind.STDOUT));
+                workerContext.put(Log.errKey, log.getWriter(WriterKind.STDERR));
+                if (context.get(Locale.class) != null)
+                    workerContext.put(Locale.class, context.get(Locale.class));
+                workerLog = Log.instance(workerContext);
+                new DiagnosticHandler() {
+                    {
+                        install(workerLog);
+                    }
+                    @Override
+                    public void report(JCDiagnostic diag) {
+                        diagnostics.add(diag);
+                    }
+                };
+                workerParserFactory = parserFactory.newWorkerFactory(workerLog);
+                workerMake = make.forToplevel(null);
+            }
+
+            ParseResult parse(JavaFileObject filename, CharSequence content) {
+                long msec = now();
+                JavaFileObject prev = workerLog.useSource(filename);
+                try {
+                    JCCompilationUnit tree;
+                    if (content != null) {
+                        profiler.start(PhaseProfiler.Phase.PARSE, filename);
+                        try {
+                            Parser parser = workerParserFactory.newParser(content, keepComments(), genEndPos,
+                                    lineDebugInfo, filename.isNameCompatible("module-info", Kind.SOURCE));
+                            tree = parser.parseCompilationUnit();
+                        } finally {
+                            profiler.end();
+                        }
+                    } else {
+                        tree = workerMake.TopLevel(JCList.nil());
+                    }
+                    tree.sourcefile = filename;
+                    if (tree.endPositions != null)
+                        workerLog.setEndPosTable(filename, tree.endPositions);
+                    return new ParseResult(tree, diagnostics.toList(), content != null, elapsed(msec));
+                } finally {
+                    workerLog.useSource(prev);
+                    diagnostics = new ListBuffer<>();
+                }
+            }
+        }
+
     /**
      * Enter the symbols found in a list of parse trees if the compilation
      * is expected to proceed beyond anno processing into attr.
@@ -1351,6 +1641,7 @@ public class JavaCompiler {
                                   env.enclClass.sym.sourcefile != null ?
                                   env.enclClass.sym.sourcefile :
                                   env.toplevel.sourcefile);
+        profiler.start(PhaseProfiler.Phase.ATTRIBUTE, env.toplevel.sourcefile);
         try {
             attr.attrib(env);
             if (errorCount() > 0 && !shouldStop(CompileState.ATTR)) {
@@ -1361,6 +1652,7 @@ public class JavaCompiler {
             compileStates.put(env, CompileState.ATTR);
         }
         finally {
+            profiler.end();
             log.useSource(prev);
         }
 
@@ -1375,12 +1667,83 @@ public class JavaCompiler {
      */
     public Queue<Env<AttrContext>> flow(Queue<Env<AttrContext>> envs) {
         ListBuffer<Env<AttrContext>> results = new ListBuffer<>();
-        for (Env<AttrContext> env: envs) {
-            flow(env, results);
+        // task listeners are not expected to be thread-safe, so
+        // only analyze concurrently if there are none
+        if (flowThreads > 1 && envs.size() > 1 && taskListener.isEmpty()
+                && !shouldStop(CompileState.FLOW)) {
+            flowConcurrently(envs, results);
+        } else {
+            for (Env<AttrContext> env: envs) {
+                flow(env, results);
+            }
         }
         return stopIfError(CompileState.FLOW, results);
     }
 
+    /**
+     * Perform dataflow checks on attributed parse trees, running the
+     * reachability and definite assignment analyses of the top-level classes
+     * concurrently on a pool of worker threads. The diagnostics of each class
+     * are kept in an ordered buffer of the log. The classes are then finished
+     * on the compiler thread, in order: the diagnostics of each class are
+     * replayed before its remaining analyses are run, so that the outcome is
+     * the same as that of analyzing the classes one at a time.
+     */
+    private void flowConcurrently(Queue<Env<AttrContext>> envs, Queue<Env<AttrContext>> results) {
+        Log.OrderedDiagnosticBuffer buffer = log.new OrderedDiagnosticBuffer();
+        ForkJoinPool pool = new ForkJoinPool(Math.min(flowThreads, envs.size()));
+        try {
+            ListBuffer<Pair<Log.OrderedDiagnosticBuffer.Slot, Future<?>>> tasks = new ListBuffer<>();
+            for (Env<AttrContext> env : envs) {
+                if (compileStates.isDone(env, CompileState.FLOW)) {
+                    tasks.append(new Pair<>(null, null));
+                    continue;
+                }
+                Log.OrderedDiagnosticBuffer.Slot slot = buffer.newSlot(
+                        env.enclClass.sym.sourcefile != null ?
+                        env.enclClass.sym.sourcefile :
+                        env.toplevel.sourcefile);
+                TreeMaker localMake = make.forToplevel(env.toplevel);
+                tasks.append(new Pair<>(slot, pool.submit(() -> {
+                    slot.enter();
+                    profiler.start(PhaseProfiler.Phase.FLOW, env.toplevel.sourcefile);
+                    try {
+                        flow.analyzeReachabilityAndAssignment(env, localMake);
+                    } finally {
+                        profiler.end();
+                        slot.exit();
+                    }
+                })));
+            }
+            for (Env<AttrContext> env : envs) {
+                Pair<Log.OrderedDiagnosticBuffer.Slot, Future<?>> task = tasks.next();
+                if (task.snd != null)
+                    task.snd.get();
+                flow(env, results, task.fst);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new Abort(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new Abort(cause);
+        } finally {
+            // workers must be done with the trees and the buffer
+            // before the compilation goes on
+            pool.shutdownNow();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            buffer.close();
+        }
+    }
+
     /**
      * Perform dataflow checks on an attributed parse tree.
      */
@@ -1394,6 +1757,17 @@ public class JavaCompiler {
      * Perform dataflow checks on an attributed parse tree.
      */
     protected void flow(Env<AttrContext> env, Queue<Env<AttrContext>> results) {
+        flow(env, results, null);
+    }
+
+    /**
+     * Perform dataflow checks on an attributed parse tree. If the reachability
+     * and definite assignment analyses of the tree have already been run on a
+     * worker thread, slot holds the diagnostics they reported, which are
+     * replayed in their place.
+     */
+    private void flow(Env<AttrContext> env, Queue<Env<AttrContext>> results,
+                      Log.OrderedDiagnosticBuffer.Slot slot) {
         if (compileStates.isDone(env, CompileState.FLOW)) {
             results.add(env);
             return;
@@ -1412,7 +1786,17 @@ public class JavaCompiler {
             try {
                 make.at(Position.FIRSTPOS);
                 TreeMaker localMake = make.forToplevel(env.toplevel);
-                flow.analyzeTree(env, localMake);
+                profiler.start(PhaseProfiler.Phase.FLOW, env.toplevel.sourcefile);
+                try {
+                    if (slot == null) {
+                        flow.analyzeTree(env, localMake);
+                    } else {
+                        slot.replay();
+                        flow.analyzeExceptionsAndCaptures(env, localMake);
+                    }
+                } finally {
+                    profiler.end();
+                }
                 compileStates.put(env, CompileState.FLOW);
 
                 if (shouldStop(CompileState.FLOW))
@@ -1550,7 +1934,7 @@ public class JavaCompiler {
                 if (!(sourceOutput)) {
                     if (shouldStop(CompileState.LOWER))
                         return;
-                    JCList<JCTree> def = lower.translateTopLevelClass(env, env.tree, localMake);
+                    JCList<JCTree> def = lower(env, env.tree, localMake);
                     if (def.head != null) {
                         Assert.check(def.tail.isEmpty());
                         results.add(new Pair<>(env, (JCClassDecl)def.head));
@@ -1562,14 +1946,24 @@ public class JavaCompiler {
             if (shouldStop(CompileState.TRANSTYPES))
                 return;
 
-            env.tree = transTypes.translateTopLevelClass(env.tree, localMake);
+            profiler.start(PhaseProfiler.Phase.TRANSTYPES, env.toplevel.sourcefile);
+            try {
+                env.tree = transTypes.translateTopLevelClass(env.tree, localMake);
+            } finally {
+                profiler.end();
+            }
             compileStates.put(env, CompileState.TRANSTYPES);
 
             if (source.allowLambda() && scanner.hasLambdas) {
                 if (shouldStop(CompileState.UNLAMBDA))
                     return;
 
-                env.tree = LambdaToMethod.instance(context).translateTopLevelClass(env, env.tree, localMake);
+                profiler.start(PhaseProfiler.Phase.LAMBDA_TO_METHOD, env.toplevel.sourcefile);
+                try {
+                    env.tree = LambdaToMethod.instance(context).translateTopLevelClass(env, env.tree, localMake);
+                } finally {
+                    profiler.end();
+                }
                 compileStates.put(env, CompileState.UNLAMBDA);
             }
 
@@ -1588,7 +1982,7 @@ public class JavaCompiler {
             }
 
             //translate out inner classes
-            JCList<JCTree> cdefs = lower.translateTopLevelClass(env, env.tree, localMake);
+            JCList<JCTree> cdefs = lower(env, env.tree, localMake);
             compileStates.put(env, CompileState.LOWER);
 
             if (shouldStop(CompileState.LOWER))
@@ -1605,6 +1999,15 @@ public class JavaCompiler {
         }
 
     }
+    // where
+        private JCList<JCTree> lower(Env<AttrContext> env, JCTree tree, TreeMaker localMake) {
+            profiler.start(PhaseProfiler.Phase.LOWER, env.toplevel.sourcefile);
+            try {
+                return lower.translateTopLevelClass(env, tree, localMake);
+            } finally {
+                profiler.end();
+            }
+        }
 
     /** Generates the source or class file for a list of classes.
      * The decision to generate a source file or a class file is
@@ -1644,7 +2047,9 @@ public class JavaCompiler {
                             && jniWriter.needsHeader(cdef.sym)) {
                         jniWriter.write(cdef.sym);
                     }
-                    file = genCode(env, cdef);
+                    // the generated file objects are only available
+                    // if the files are written on this thread
+                    file = genCode(env, cdef, results == null);
                 }
                 if (results != null && file != null)
                     results.add(file);
@@ -1663,6 +2068,31 @@ public class JavaCompiler {
         }
     }
 
+    /**
+     * Release the state retained for an entry on the todo list that has been
+     * completely processed, so that it may be garbage collected before the
+     * end of the compilation. The environment is only forgotten if Lower has
+     * already removed it from the type environments; otherwise a class that
+     * depends on it could cause it to be processed a second time.
+     * @param env      the environment of the processed class
+     * @param classes  the classes generated for the environment
+     */
+    protected void release(Env<AttrContext> env, Queue<Pair<Env<AttrContext>, JCClassDecl>> classes) {
+        if (verboseCompilePolicy)
+            printNote("[release " + env.enclClass.sym + "]");
+
+        for (Pair<Env<AttrContext>, JCClassDecl> x : classes) {
+            lower.prunedTree.remove(x.snd.sym);
+        }
+        desugaredEnvs.remove(env);
+        if (enter.getEnv(env.enclClass.sym) == null)
+            compileStates.remove(env);
+
+        JavaFileObject file = env.toplevel.sourcefile;
+        if (!todo.containsFile(file))
+            log.discardSource(file);
+    }
+
         // where
         Map<JCCompilationUnit, Queue<Env<AttrContext>>> groupByFile(Queue<Env<AttrContext>> envs) {
             // use a LinkedHashMap to preserve the order of the original list as much as possible
@@ -1782,9 +2212,20 @@ public class JavaCompiler {
         }
     }
 
-    /** Close the compiler, flushing the logs
+    /** Wait for any class files being written in the background,
+     *  reporting any errors that occur while writing them.
+     */
+    public void flushClassFiles() {
+        if (backgroundWriter != null)
+            backgroundWriter.flush();
+    }
+
+    /** Close the compiler, flushing the class files being written
+     *  and the logs
      */
     public void close() {
+        flushClassFiles();
+        backgroundWriter = null;
         rootClasses = null;
         finder = null;
         reader = null;
@@ -34,13 +34,16 @@ import java.nio.file.NoSuchFileException;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
 import java.util.Set;
 
 import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
 
 import com.flint.tools.flintc.api.BasicJavacTask;
 import com.flint.tools.flintc.file.BaseFileManager;
 import com.flint.tools.flintc.file.CacheFSInfo;
+import com.flint.tools.flintc.file.FSInfo;
 import com.flint.tools.flintc.file.JavacFileManager;
 import com.flint.tools.flintc.jvm.Target;
 import com.flint.tools.flintc.platform.PlatformDescription;
@@ -203,6 +206,8 @@ public class Main {
             return Result.CMDERR;
         }
 
+        String[] unexpandedArgv = argv;
+
         // prefix argv with contents of environment variable and expand @-files
         try {
             argv = CommandLine.parse(ENV_OPT_NAME, argv);
@@ -237,7 +242,7 @@ public class Main {
         // allow System property in following line as a Mustang legacy
         boolean batchMode = (options.isUnset("nonBatchMode")
                     && System.getProperty("nonBatchMode") == null);
-        if (batchMode)
+        if (batchMode && context.get(FSInfo.class) == null) // keep a cache supplied by the caller
             CacheFSInfo.preRegister(context);
 
         boolean ok = true;
@@ -264,11 +269,20 @@ public class Main {
         if (args.isEmpty())
             return Result.OK;
 
+        // an incremental build runs the compiler itself, once for each round
+        if (incrementalBuild == null && options.isSet("incremental")) {
+            return new IncrementalBuild(this, unexpandedArgv, argv, context).run(args.getFileObjects());
+        }
+
         // init Dependencies
-        if (options.isSet("debug.completionDeps")) {
+        if (options.isSet("debug.completionDeps") || incrementalBuild != null) {
             Dependencies.GraphDependencies.preRegister(context);
         }
 
+        if (incrementalBuild != null) {
+            incrementalBuild.initRound(context);
+        }
+
         // init plugins
         Set<JCList<String>> pluginOpts = args.getPluginOpts();
         if (!pluginOpts.isEmpty() || context.get(PlatformDescription.class) != null) {
@@ -299,7 +313,10 @@ public class Main {
         }
 
         try {
-            comp.compile(args.getFileObjects(), args.getClassNames(), null, JCList.nil());
+            Collection<JavaFileObject> fileObjects = (incrementalBuild != null)
+                    ? incrementalBuild.getRoundFiles()
+                    : args.getFileObjects();
+            comp.compile(fileObjects, args.getClassNames(), null, JCList.nil());
 
             if (log.expectDiagKeys != null) {
                 if (log.expectDiagKeys.isEmpty()) {
@@ -419,7 +436,10 @@ public class Main {
     }
 
     // TODO: update this to JavacFileManager
-    private JavaFileManager fileManager;
+    JavaFileManager fileManager;
+
+    /** The incremental build for which this compiler runs a round, or null. */
+    IncrementalBuild incrementalBuild;
 
     /* ************************************************************************
      * Internationalization
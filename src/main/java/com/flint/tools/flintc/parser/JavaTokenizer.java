@@ -732,6 +732,6 @@ public class JavaTokenizer {
      *
      * @return a LineMap */
     public Position.LineMap getLineMap() {
-        return Position.makeLineMap(reader.getRawCharacters(), reader.buflen, false);
+        return reader.getLineMap();
     }
 }
@@ -176,6 +176,8 @@ public class JavacParser implements Parser {
         this.allowAnnotationsAfterTypeParams = true; //source.allowAnnotationsAfterTypeParams();
         this.allowUnderscoreIdentifier = true; //source.allowUnderscoreIdentifier();
         this.allowPrivateInterfaceMethods = true; //source.allowPrivateInterfaceMethods();
+        this.skipBodies = fac.options.isSet("headerOnly");
+        this.lookaheadStatistics = fac.lookaheadStatistics;
 
         this.parseModuleInfo = parseModuleInfo;
 
@@ -235,6 +237,15 @@ public class JavacParser implements Parser {
      */
     boolean allowPrivateInterfaceMethods;
 
+    /** Switch: should the bodies of methods and initializers, and the
+     *  initializers of non-final fields, be skipped (-XDheaderOnly)?
+     */
+    boolean skipBodies;
+
+    /** The lookahead statistics to be updated, or null if not enabled.
+     */
+    LookaheadStatistics lookaheadStatistics;
+
     /** Switch: should we allow intersection types in cast?
      */
     boolean allowIntersectionTypesInCast;
@@ -300,6 +311,14 @@ public class JavacParser implements Parser {
         token = S.token();
     }
 
+    /** If lookahead statistics are enabled, record the lookahead used since
+     *  the last call to S.resetMaxLookahead() to disambiguate a construct.
+     */
+    void recordLookahead(LookaheadStatistics.Construct construct, int pos) {
+        if (lookaheadStatistics != null)
+            lookaheadStatistics.record(construct, S.resetMaxLookahead(), log.currentSource(), pos);
+    }
+
     protected boolean peekToken(Filter<TokenKind> tk) {
         return peekToken(0, tk);
     }
@@ -1121,7 +1140,9 @@ public class JavacParser implements Parser {
             break;
         case LPAREN:
             if (typeArgs == null && (mode & EXPR) != 0) {
+                S.resetMaxLookahead();
                 ParensResult pres = analyzeParens();
+                recordLookahead(LookaheadStatistics.Construct.PARENS, pos);
                 switch (pres) {
                     case CAST:
                        accept(LPAREN);
@@ -1333,7 +1354,7 @@ public class JavacParser implements Parser {
                         }
                         break loop;
                     case LT:
-                        if ((mode & TYPE) == 0 && isUnboundMemberRef()) {
+                        if ((mode & TYPE) == 0 && isUnboundMemberRef(token.pos)) {
                             //this is an unbound method reference whose qualifier
                             //is a generic type i.e. A<S>::m
                             int pos1 = token.pos;
@@ -1491,6 +1512,13 @@ public class JavacParser implements Parser {
      * method reference or a binary expression. To disambiguate, look for a
      * matching '&gt;' and see if the subsequent terminal is either '.' or '::'.
      */
+    boolean isUnboundMemberRef(int pos) {
+        S.resetMaxLookahead();
+        boolean result = isUnboundMemberRef();
+        recordLookahead(LookaheadStatistics.Construct.MEMBER_REFERENCE, pos);
+        return result;
+    }
+
     @SuppressWarnings("fallthrough")
     boolean isUnboundMemberRef() {
         int pos = 0, depth = 0;
@@ -2298,6 +2326,30 @@ public class JavacParser implements Parser {
         return block(token.pos, 0);
     }
 
+    /** Skip a block by matching braces, without building trees for its
+     *  contents, and return a stub in its place. The stub consists of a
+     *  single {@code throw null;} statement, so that it is well formed for
+     *  any method or constructor, and has flag BODY_SKIPPED, so that the
+     *  later phases do not mistake it for the original code.
+     */
+    JCBlock skippedBlock(int pos, long flags) {
+        accept(LBRACE);
+        int depth = 1;
+        while (token.kind != EOF) {
+            if (token.kind == LBRACE) {
+                depth++;
+            } else if (token.kind == RBRACE && --depth == 0) {
+                break;
+            }
+            nextToken();
+        }
+        JCStatement stub = F.at(pos).Throw(F.at(pos).Literal(TypeTag.BOT, null));
+        JCBlock t = F.at(pos).Block(flags | Flags.BODY_SKIPPED, JCList.of(stub));
+        t.endpos = token.pos;
+        accept(RBRACE);
+        return toP(t);
+    }
+
     /** BlockStatements = { BlockStatement }
      *  BlockStatement  = LocalVariableDeclarationStatement
      *                  | ClassOrInterfaceOrEnumDeclaration
@@ -3569,7 +3621,7 @@ public class JavacParser implements Parser {
                 if (isInterface) {
                     error(token.pos, "initializer.not.allowed");
                 }
-                return JCList.of(block(pos, mods.flags));
+                return JCList.of(skipBodies ? skippedBlock(pos, mods.flags) : block(pos, mods.flags));
             } else {
                 pos = token.pos;
                 JCList<JCTypeParameter> typarams = typeParametersOpt();
@@ -3620,6 +3672,12 @@ public class JavacParser implements Parser {
                                                     new ListBuffer<JCTree>()).toList();
                         accept(SEMI);
                         storeEnd(defs.last(), S.prevToken().endPos);
+                        if (skipBodies && !isInterface && (mods.flags & Flags.FINAL) == 0) {
+                            // only final fields may be constants, or need
+                            // their initializer to be definitely assigned
+                            for (JCTree def : defs)
+                                ((JCVariableDecl) def).init = null;
+                        }
                         return defs;
                     } else {
                         pos = token.pos;
@@ -3670,7 +3728,7 @@ public class JavacParser implements Parser {
             JCBlock body = null;
             JCExpression defaultValue;
             if (token.kind == LBRACE) {
-                body = block();
+                body = skipBodies ? skippedBlock(token.pos, 0) : block();
                 defaultValue = null;
             } else {
                 if (token.kind == DEFAULT) {
@@ -73,6 +73,12 @@ public interface Lexer {
      */
     void errPos(int pos);
 
+    /**
+     * Return the greatest lookahead requested since the previous call,
+     * and start counting again from zero.
+     */
+    int resetMaxLookahead();
+
     /**
      * Build a map for translating between line numbers and
      * positions in the input.
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package com.flint.tools.flintc.parser;
+
+import javax.tools.JavaFileObject;
+
+import com.flint.tools.flintc.util.Context;
+import com.flint.tools.flintc.util.DiagnosticSource;
+import com.flint.tools.flintc.util.Log;
+import com.flint.tools.flintc.util.Options;
+
+/** Counts how far ahead the parser has to look to disambiguate the
+ *  constructs that need unbounded lookahead, such as a parenthesized
+ *  expression versus a cast or a lambda. Enabled by
+ *  {@code -XDlookaheadStats}; the statistics, including the deepest
+ *  lookahead seen for each construct and where it occurred, are printed
+ *  when the compilation finishes. Parsers running on different threads may
+ *  record statistics concurrently.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class LookaheadStatistics {
+    protected static final Context.Key<LookaheadStatistics> lookaheadStatisticsKey = new Context.Key<>();
+
+    /** The constructs whose lookahead is counted. */
+    public enum Construct {
+        /** '(' starting a cast, a lambda or a parenthesized expression. */
+        PARENS("parens"),
+        /** 'Identifier &lt;' starting a member reference or a comparison. */
+        MEMBER_REFERENCE("memberRef");
+
+        final String name;
+
+        Construct(String name) {
+            this.name = name;
+        }
+    }
+
+    /** Get the LookaheadStatistics instance for this context, or null if
+     *  lookahead statistics are not enabled.
+     */
+    public static LookaheadStatistics instance(Context context) {
+        LookaheadStatistics instance = context.get(lookaheadStatisticsKey);
+        if (instance == null && Options.instance(context).isSet("lookaheadStats"))
+            instance = new LookaheadStatistics(context);
+        return instance;
+    }
+
+    private final long[] count = new long[Construct.values().length];
+    private final long[] total = new long[Construct.values().length];
+    private final int[] max = new int[Construct.values().length];
+    private final String[] maxWhere = new String[Construct.values().length];
+
+    protected LookaheadStatistics(Context context) {
+        context.put(lookaheadStatisticsKey, this);
+    }
+
+    /** Record the lookahead needed to disambiguate a construct.
+     *  @param source the source being parsed
+     *  @param pos    the position of the construct
+     */
+    public synchronized void record(Construct construct, int depth, DiagnosticSource source, int pos) {
+        int i = construct.ordinal();
+        count[i]++;
+        total[i] += depth;
+        if (depth > max[i]) {
+            max[i] = depth;
+            JavaFileObject file = source.getFile();
+            maxWhere[i] = (file == null ? "?" : file.getName()) + ":" + source.getLineNumber(pos);
+        }
+    }
+
+    /** Print the statistics to the notice writer of the given log. */
+    public synchronized void print(Log log) {
+        StringBuilder sb = new StringBuilder("[lookahead: construct, count, mean, max, deepest at]");
+        for (Construct c : Construct.values()) {
+            int i = c.ordinal();
+            if (count[i] == 0)
+                continue;
+            sb.append(String.format("\n[lookahead: %s, %d, %.2f, %d, %s]",
+                    c.name, count[i], (double) total[i] / count[i], max[i], maxWhere[i]));
+        }
+        log.printRawLines(Log.WriterKind.NOTICE, sb.toString());
+    }
+}
@@ -31,6 +31,7 @@ import com.flint.tools.flintc.util.Context;
 import com.flint.tools.flintc.util.Log;
 import com.flint.tools.flintc.util.Names;
 import com.flint.tools.flintc.util.Options;
+import com.flint.tools.flintc.util.Position;
 
 import java.util.Locale;
 
@@ -59,6 +60,7 @@ public class ParserFactory {
     final Options options;
     final ScannerFactory scannerFactory;
     final Locale locale;
+    final LookaheadStatistics lookaheadStatistics;
 
     protected ParserFactory(Context context) {
         super();
@@ -72,6 +74,32 @@ public class ParserFactory {
         this.options = Options.instance(context);
         this.scannerFactory = ScannerFactory.instance(context);
         this.locale = context.get(Locale.class);
+        this.lookaheadStatistics = LookaheadStatistics.instance(context);
+    }
+
+    /** Create a factory for parsers run by a single parse worker thread.
+     *  The new factory shares the name table, tokens, options and scanner
+     *  factory of the given one, which must be safe for concurrent use,
+     *  but has its own tree maker and reports to the given log.
+     */
+    protected ParserFactory(ParserFactory shared, Log log) {
+        this.F = shared.F.forToplevel(null).at(Position.NOPOS);
+        this.docTreeMaker = shared.docTreeMaker;
+        this.log = log;
+        this.names = shared.names;
+        this.tokens = shared.tokens;
+        this.options = shared.options;
+        this.scannerFactory = shared.scannerFactory;
+        this.locale = shared.locale;
+        this.lookaheadStatistics = shared.lookaheadStatistics;
+    }
+
+    /** Get a parser factory for use by a parse worker thread, such that
+     *  parsers created by different worker factories may run concurrently.
+     *  @param log the log to which the worker's parsers report diagnostics
+     */
+    public ParserFactory newWorkerFactory(Log log) {
+        return new ParserFactory(this, log);
     }
 
     public JavacParser newParser(CharSequence input, boolean keepDocComments, boolean keepEndPos, boolean keepLineMap) {
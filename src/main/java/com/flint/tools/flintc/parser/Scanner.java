@@ -28,8 +28,6 @@ package com.flint.tools.flintc.parser;
 import com.flint.tools.flintc.util.Position.LineMap;
 
 import java.nio.CharBuffer;
-import java.util.ArrayList;
-import java.util.List;
 
 
 import static com.flint.tools.flintc.parser.Tokens.DUMMY;
@@ -55,9 +53,18 @@ public class Scanner implements Lexer {
      */
     private Token prevToken;
 
-    /** Buffer of saved tokens (used during lookahead)
+    /** Circular buffer of saved tokens (used during lookahead). The saved
+     *  tokens are savedTokens[(savedStart + i) & (savedTokens.length - 1)]
+     *  for 0 <= i < savedCount; the length of the buffer is a power of two.
      */
-    private List<Token> savedTokens = new ArrayList<>();
+    private Token[] savedTokens = new Token[16];
+    private int savedStart;
+    private int savedCount;
+
+    /** The greatest lookahead requested since the last call to
+     *  resetMaxLookahead().
+     */
+    private int maxLookahead;
 
     private JavaTokenizer tokenizer;
 
@@ -94,24 +101,42 @@ public class Scanner implements Lexer {
             return token;
         } else {
             ensureLookahead(lookahead);
-            return savedTokens.get(lookahead - 1);
+            return savedTokens[(savedStart + lookahead - 1) & (savedTokens.length - 1)];
         }
     }
     //where
         private void ensureLookahead(int lookahead) {
-            for (int i = savedTokens.size() ; i < lookahead ; i ++) {
-                savedTokens.add(tokenizer.readToken());
+            if (lookahead > maxLookahead)
+                maxLookahead = lookahead;
+            if (lookahead > savedTokens.length)
+                growSavedTokens(lookahead);
+            for (; savedCount < lookahead; savedCount++) {
+                savedTokens[(savedStart + savedCount) & (savedTokens.length - 1)] = tokenizer.readToken();
             }
         }
 
+        private void growSavedTokens(int lookahead) {
+            int length = savedTokens.length;
+            while (length < lookahead)
+                length <<= 1;
+            Token[] newTokens = new Token[length];
+            for (int i = 0; i < savedCount; i++)
+                newTokens[i] = savedTokens[(savedStart + i) & (savedTokens.length - 1)];
+            savedTokens = newTokens;
+            savedStart = 0;
+        }
+
     public Token prevToken() {
         return prevToken;
     }
 
     public void nextToken() {
         prevToken = token;
-        if (!savedTokens.isEmpty()) {
-            token = savedTokens.remove(0);
+        if (savedCount > 0) {
+            token = savedTokens[savedStart];
+            savedTokens[savedStart] = null;
+            savedStart = (savedStart + 1) & (savedTokens.length - 1);
+            savedCount--;
         } else {
             token = tokenizer.readToken();
         }
@@ -124,6 +149,12 @@ public class Scanner implements Lexer {
         return token;
     }
 
+    public int resetMaxLookahead() {
+        int result = maxLookahead;
+        maxLookahead = 0;
+        return result;
+    }
+
     public LineMap getLineMap() {
         return tokenizer.getLineMap();
     }
@@ -68,7 +68,9 @@ public class ScannerFactory {
     }
 
     public Scanner newScanner(CharSequence input) {
-        if (input instanceof CharBuffer) {
+        if (input instanceof Utf8Source) {
+            return new Scanner(this, new JavaTokenizer(this, new Utf8Reader(this, (Utf8Source) input)));
+        } else if (input instanceof CharBuffer) {
             CharBuffer buf = (CharBuffer) input;
                 return new Scanner(this, buf);
         } else {
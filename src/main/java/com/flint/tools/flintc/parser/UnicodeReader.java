@@ -6,6 +6,8 @@ package com.flint.tools.flintc.parser;
 import com.flint.tools.flintc.util.ArrayUtils;
 import com.flint.tools.flintc.util.Name;
 import com.flint.tools.flintc.util.Names;
+import com.flint.tools.flintc.util.Position;
+import com.flint.tools.flintc.util.Position.LineMap;
 
 import java.nio.CharBuffer;
 import java.util.Arrays;
@@ -81,6 +83,16 @@ public class UnicodeReader {
         scanChar();
     }
 
+    /** Create a reader for a subclass that holds the input itself, and
+     *  overrides all methods that access the input buffer. The subclass
+     *  must read the first character.
+     */
+    protected UnicodeReader(ScannerFactory sf, int inputLength) {
+        names = sf.names;
+        buflen = inputLength;
+        bp = -1;
+    }
+
     /** Read next character.
      */
     protected void scanChar() {
@@ -260,4 +272,11 @@ public class UnicodeReader {
         System.arraycopy(buf, beginIndex, chars, 0, length);
         return chars;
     }
+
+    /** Build a map for translating between line numbers and
+     *  positions in the input.
+     */
+    public LineMap getLineMap() {
+        return Position.makeLineMap(buf, buflen, false);
+    }
 }
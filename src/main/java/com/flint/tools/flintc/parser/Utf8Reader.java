@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package com.flint.tools.flintc.parser;
+
+import java.nio.ByteBuffer;
+
+import com.flint.tools.flintc.util.Name;
+import com.flint.tools.flintc.util.Position.LineMap;
+
+import static com.flint.tools.flintc.util.LayoutCharacters.EOI;
+
+/** A reader that scans a {@link Utf8Source} directly from its bytes,
+ *  decoding a character only when it is not ASCII. Identifiers that are
+ *  spelled out in the source, without unicode escapes, are entered in the
+ *  name table straight from their bytes.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class Utf8Reader extends UnicodeReader {
+
+    private final Utf8Source source;
+    private final ByteBuffer bytes;
+    private final int limit;
+
+    /** The array behind the bytes, if they are on the heap, or null. */
+    private final byte[] array;
+    private final int arrayOffset;
+
+    /** The byte offset of the character at bp + 1, and whether that
+     *  character is the low surrogate of a four-byte sequence at that offset.
+     */
+    private int next;
+    private boolean nextLow;
+
+    /** Whether ch has been changed by digit() to the ASCII digit with the
+     *  same value as the character at bp.
+     */
+    private boolean chReplaced;
+
+    /** Whether the characters in sbuf are those of the source at positions
+     *  rawStart to rawStart + sp, in which case the name they spell can be
+     *  made from the bytes of the source.
+     */
+    private boolean raw;
+    private int rawStart;
+    private byte[] nameBytes;
+
+    protected Utf8Reader(ScannerFactory sf, Utf8Source source) {
+        super(sf, source.length());
+        this.source = source;
+        this.bytes = source.bytes;
+        this.limit = bytes.limit();
+        if (bytes.hasArray()) {
+            array = bytes.array();
+            arrayOffset = bytes.arrayOffset();
+        } else {
+            array = null;
+            arrayOffset = 0;
+        }
+        scanChar();
+    }
+
+    private int byteAt(int i) {
+        return (array != null) ? array[arrayOffset + i] : bytes.get(i);
+    }
+
+    /** Read the character at bp + 1, and move on to the one after it. */
+    private char readNext() {
+        int i = next;
+        if (i >= limit)
+            return EOI;
+        int b = byteAt(i);
+        if (b >= 0) {
+            next = i + 1;
+            return (char) b;
+        }
+        if ((b & 0xe0) == 0xc0) {
+            next = i + 2;
+            return (char) (((b & 0x1f) << 6) | (byteAt(i + 1) & 0x3f));
+        }
+        if ((b & 0xf0) == 0xe0) {
+            next = i + 3;
+            return (char) (((b & 0x0f) << 12) | ((byteAt(i + 1) & 0x3f) << 6) | (byteAt(i + 2) & 0x3f));
+        }
+        int codePoint = ((b & 0x07) << 18) | ((byteAt(i + 1) & 0x3f) << 12)
+                | ((byteAt(i + 2) & 0x3f) << 6) | (byteAt(i + 3) & 0x3f);
+        if (!nextLow) {
+            nextLow = true;
+            return Character.highSurrogate(codePoint);
+        } else {
+            nextLow = false;
+            next = i + 4;
+            return Character.lowSurrogate(codePoint);
+        }
+    }
+
+    @Override
+    protected void scanChar() {
+        if (bp < buflen) {
+            bp++;
+            ch = readNext();
+            chReplaced = false;
+            if (ch == '\\') {
+                convertUnicode();
+            }
+        }
+    }
+
+    @Override
+    protected void convertUnicode() {
+        if (ch == '\\' && unicodeConversionBp != bp && peekChar() == 'u') {
+            do {
+                bp++; ch = readNext();
+            } while (ch == 'u');
+            int limit = bp + 3;
+            if (limit < buflen) {
+                int d = digit(bp, 16);
+                int code = d;
+                while (bp < limit && d >= 0) {
+                    bp++; ch = readNext();
+                    d = digit(bp, 16);
+                    code = (code << 4) + d;
+                }
+                if (d >= 0) {
+                    ch = (char)code;
+                    unicodeConversionBp = bp;
+                }
+            }
+        }
+    }
+
+    @Override
+    protected int peekSurrogates() {
+        if (Character.isHighSurrogate(ch)) {
+            int prevNext = next;
+            boolean prevNextLow = nextLow;
+            boolean prevChReplaced = chReplaced;
+            int codePoint = super.peekSurrogates();
+            next = prevNext;
+            nextLow = prevNextLow;
+            chReplaced = prevChReplaced;
+            return codePoint;
+        }
+        return -1;
+    }
+
+    @Override
+    protected int digit(int pos, int base) {
+        char c = ch;
+        int result = super.digit(pos, base);
+        if (ch != c)
+            chReplaced = true;
+        return result;
+    }
+
+    @Override
+    protected void skipChar() {
+        bp++;
+        readNext();
+    }
+
+    @Override
+    protected char peekChar() {
+        int prevNext = next;
+        boolean prevNextLow = nextLow;
+        char c = readNext();
+        next = prevNext;
+        nextLow = prevNextLow;
+        return c;
+    }
+
+    @Override
+    protected void putChar(char c, boolean scan) {
+        if (sp == 0) {
+            raw = true;
+            rawStart = bp;
+        }
+        if (raw && (c != ch || chReplaced || isUnicode() || bp != rawStart + sp ||
+                    c == 0 || Character.isSurrogate(c))) {
+            // the name table encodes these characters differently from UTF-8
+            raw = false;
+        }
+        super.putChar(c, scan);
+    }
+
+    @Override
+    Name name() {
+        if (!raw || sp == 0)
+            return super.name();
+        int start = source.byteOffset(rawStart);
+        int length = source.byteOffset(rawStart + sp) - start;
+        if (array != null)
+            return names.fromUtf(array, arrayOffset + start, length);
+        if (nameBytes == null || nameBytes.length < length)
+            nameBytes = new byte[Math.max(length, 64)];
+        for (int i = 0; i < length; i++)
+            nameBytes[i] = bytes.get(start + i);
+        return names.fromUtf(nameBytes, 0, length);
+    }
+
+    @Override
+    public char[] getRawCharacters() {
+        return source.getChars(0, buflen);
+    }
+
+    @Override
+    public char[] getRawCharacters(int beginIndex, int endIndex) {
+        return source.getChars(beginIndex, endIndex);
+    }
+
+    @Override
+    public LineMap getLineMap() {
+        return source.getLineMap();
+    }
+}
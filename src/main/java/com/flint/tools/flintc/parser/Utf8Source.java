@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package com.flint.tools.flintc.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.flint.tools.flintc.util.Position;
+import com.flint.tools.flintc.util.Position.LineMap;
+
+/** The content of a source file held as well-formed UTF-8 bytes, in a heap
+ *  or memory-mapped buffer, which the scanner reads with a {@link Utf8Reader}
+ *  rather than decoding the whole file to characters first.
+ *
+ *  <p>Positions are character offsets, as for decoded sources. They are
+ *  mapped to byte offsets using the positions of the non-ASCII characters,
+ *  which are found, together with the start of each line, by a single pass
+ *  over the bytes when the source is created. For a source that is entirely
+ *  ASCII the two offsets are the same.
+ *
+ *  <p>Other clients that need the characters of the source can still use it
+ *  as a CharSequence; the content is then decoded on first use.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class Utf8Source implements CharSequence {
+
+    final ByteBuffer bytes;
+
+    /** The number of characters in the source. */
+    private final int length;
+
+    /** For each non-ASCII character, the position of the following character,
+     *  and the number of bytes by which byte offsets exceed character offsets
+     *  from that position on.
+     */
+    private final int[] shiftPositions;
+    private final int[] shifts;
+    private final int shiftCount;
+
+    /** The position of the first character of each line. */
+    private final int[] lineStarts;
+
+    /** The decoded content, once it has been needed. */
+    private String decoded;
+
+    private Utf8Source(ByteBuffer bytes, int length,
+                       int[] shiftPositions, int[] shifts, int shiftCount, int[] lineStarts) {
+        this.bytes = bytes;
+        this.length = length;
+        this.shiftPositions = shiftPositions;
+        this.shifts = shifts;
+        this.shiftCount = shiftCount;
+        this.lineStarts = lineStarts;
+    }
+
+    /** Create a source from the bytes between position 0 and the limit of a
+     *  buffer, or return null if they are not well-formed UTF-8, in which case
+     *  the source should be decoded in the usual way, so that the malformed
+     *  input is reported.
+     */
+    public static Utf8Source of(ByteBuffer bytes) {
+        int limit = bytes.limit();
+        int[] shiftPositions = new int[16];
+        int[] shifts = new int[16];
+        int shiftCount = 0;
+        int[] lineStarts = new int[Math.max(16, limit / 32)];
+        int lineCount = 0;
+        int shift = 0;
+        int chars = 0;
+        boolean lineStart = true;
+        for (int i = 0; i < limit; ) {
+            if (lineStart) {
+                if (lineCount == lineStarts.length)
+                    lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                lineStarts[lineCount++] = chars;
+                lineStart = false;
+            }
+            int b = bytes.get(i);
+            if (b >= 0) {
+                if (b == '\n' || b == '\r' && (i + 1 == limit || bytes.get(i + 1) != '\n'))
+                    lineStart = true;
+                i++;
+                chars++;
+                continue;
+            }
+            int width;
+            int min, max;
+            b &= 0xff;
+            if (b >= 0xc2 && b <= 0xdf) {
+                width = 2; min = 0x80; max = 0xbf;
+            } else if (b >= 0xe0 && b <= 0xef) {
+                width = 3;
+                min = (b == 0xe0) ? 0xa0 : 0x80;
+                max = (b == 0xed) ? 0x9f : 0xbf;
+            } else if (b >= 0xf0 && b <= 0xf4) {
+                width = 4;
+                min = (b == 0xf0) ? 0x90 : 0x80;
+                max = (b == 0xf4) ? 0x8f : 0xbf;
+            } else {
+                return null;
+            }
+            if (i + width > limit)
+                return null;
+            int b1 = bytes.get(i + 1) & 0xff;
+            if (b1 < min || b1 > max)
+                return null;
+            for (int k = 2; k < width; k++) {
+                if ((bytes.get(i + k) & 0xc0) != 0x80)
+                    return null;
+            }
+            i += width;
+            // a four-byte sequence is a surrogate pair
+            int n = (width == 4) ? 2 : 1;
+            chars += n;
+            shift += width - n;
+            if (shiftCount == shifts.length) {
+                shiftPositions = Arrays.copyOf(shiftPositions, shiftCount * 2);
+                shifts = Arrays.copyOf(shifts, shiftCount * 2);
+            }
+            shiftPositions[shiftCount] = chars;
+            shifts[shiftCount] = shift;
+            shiftCount++;
+        }
+        return new Utf8Source(bytes, chars, shiftPositions, shifts, shiftCount,
+                              Arrays.copyOf(lineStarts, lineCount));
+    }
+
+    /** The offset of the first byte of the character at a position. */
+    int byteOffset(int pos) {
+        if (shiftCount == 0 || pos < shiftPositions[0])
+            return pos;
+        int i = Arrays.binarySearch(shiftPositions, 0, shiftCount, pos);
+        if (i < 0)
+            i = -i - 2;
+        return pos + shifts[i];
+    }
+
+    /** The characters between two positions. */
+    char[] getChars(int begin, int end) {
+        int from = byteOffset(begin);
+        ByteBuffer range = bytes.duplicate();
+        range.limit(byteOffset(end)).position(from);
+        CharBuffer chars = StandardCharsets.UTF_8.decode(range);
+        char[] result = new char[end - begin];
+        chars.get(result, 0, Math.min(result.length, chars.remaining()));
+        return result;
+    }
+
+    LineMap getLineMap() {
+        return Position.makeLineMap(lineStarts);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        if (decoded == null)
+            decoded = new String(getChars(0, length));
+        return decoded;
+    }
+}
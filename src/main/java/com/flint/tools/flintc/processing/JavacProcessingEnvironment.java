@@ -108,6 +108,8 @@ public class JavacProcessingEnvironment implements ProcessingEnvironment, Closea
     private final JavaCompiler compiler;
     private final Modules modules;
     private final com.flint.tools.flintc.code.Types types;
+    private final Resolve rs;
+    private final Infer infer;
     private final Annotate annotate;
 
     /**
@@ -205,6 +207,8 @@ public class JavacProcessingEnvironment implements ProcessingEnvironment, Closea
         typeUtils = JavacTypes.instance(context);
         modules = Modules.instance(context);
         types = com.flint.tools.flintc.code.Types.instance(context);
+        rs = Resolve.instance(context);
+        infer = Infer.instance(context);
         annotate = Annotate.instance(context);
         processorOptions = initProcessorOptions();
         unmatchedProcessorOptions = initUnmatchedProcessorOptions();
@@ -1245,6 +1249,8 @@ public class JavacProcessingEnvironment implements ProcessingEnvironment, Closea
             compiler.newRound();
             modules.newRound();
             types.newRound();
+            rs.newRound();
+            infer.newRound();
             annotate.newRound();
 
             boolean foundError = false;
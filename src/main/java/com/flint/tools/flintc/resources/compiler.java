@@ -591,6 +591,9 @@ public final class compiler extends java.util.ListResourceBundle {
             { "compiler.misc.varargs.trustme.on.virtual.varargs.final.only", "Instance method {0} is not final." },
             { "compiler.misc.verbose.checking.attribution", "[checking {0}]" },
             { "compiler.misc.verbose.classpath", "[search path for class files: {0}]" },
+            { "compiler.misc.verbose.incremental.round", "[incremental round {0}: compiling {1} of {2} source files]" },
+            { "compiler.misc.verbose.incremental.store.ignored", "[ignoring unreadable incremental build state {0}]" },
+            { "compiler.misc.verbose.incremental.up.to.date", "[incremental: all {0} source files are up to date]" },
             { "compiler.misc.verbose.loading", "[loading {0}]" },
             { "compiler.misc.verbose.parsing.done", "[parsing completed {0}ms]" },
             { "compiler.misc.verbose.parsing.started", "[parsing started {0}]" },
@@ -715,6 +718,7 @@ public final class compiler extends java.util.ListResourceBundle {
             { "compiler.warn.proc.unmatched.processor.options", "The following options were not recognized by any processor: ''{0}''" },
             { "compiler.warn.proc.use.implicit", "Implicitly compiled files were not subject to annotation processing.\nUse -implicit to specify a policy for implicit compilation." },
             { "compiler.warn.proc.use.proc.or.implicit", "Implicitly compiled files were not subject to annotation processing.\nUse -proc:none to disable annotation processing or -implicit to specify a policy for implicit compilation." },
+            { "compiler.warn.profile.cant.write", "Cannot write profile report {0}: {1}" },
             { "compiler.warn.raw.class.use", "found raw type: {0}\nmissing type arguments for generic class {1}" },
             { "compiler.warn.redundant.cast", "redundant cast to {0}" },
             { "compiler.warn.requires.automatic", "requires directive for an automatic module" },
@@ -10,6 +10,8 @@ public final class javac extends java.util.ListResourceBundle {
             { "javac.err.file.not.directory", "not a directory: {0}" },
             { "javac.err.file.not.file", "not a file: {0}" },
             { "javac.err.file.not.found", "file not found: {0}" },
+            { "javac.err.incremental.cant.write.store", "error writing incremental build state {0}: {1}" },
+            { "javac.err.incremental.no.output.dir", "incremental compilation requires an output directory; use -d" },
             { "javac.err.invalid.A.key", "key in annotation processor option ''{0}'' is not a dot-separated sequence of identifiers" },
             { "javac.err.invalid.arg", "invalid argument: {0}" },
             { "javac.err.invalid.flag", "invalid flag: {0}" },
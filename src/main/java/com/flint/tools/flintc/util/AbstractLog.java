@@ -104,7 +104,7 @@ public abstract class AbstractLog {
      *  @param errorKey    The key for the localized error message.
      */
     public void error(Error errorKey) {
-        report(diags.error(null, source, null, errorKey));
+        report(diags.error(null, currentSource(), null, errorKey));
     }
 
     /** Report an error, unless another error was already reported at same
@@ -123,7 +123,7 @@ public abstract class AbstractLog {
      *  @param errorKey    The key for the localized error message.
      */
     public void error(DiagnosticPosition pos, Error errorKey) {
-        report(diags.error(null, source, pos, errorKey));
+        report(diags.error(null, currentSource(), pos, errorKey));
     }
 
     /** Report an error, unless another error was already reported at same
@@ -144,7 +144,7 @@ public abstract class AbstractLog {
      *  @param errorKey    The key for the localized error message.
      */
     public void error(DiagnosticFlag flag, DiagnosticPosition pos, Error errorKey) {
-        report(diags.error(flag, source, pos, errorKey));
+        report(diags.error(flag, currentSource(), pos, errorKey));
     }
 
     /** Report an error, unless another error was already reported at same
@@ -163,7 +163,7 @@ public abstract class AbstractLog {
      *  @param errorKey    The key for the localized error message.
      */
     public void error(int pos, Error errorKey) {
-        report(diags.error(null, source, wrap(pos), errorKey));
+        report(diags.error(null, currentSource(), wrap(pos), errorKey));
     }
 
     /** Report an error, unless another error was already reported at same
@@ -184,7 +184,7 @@ public abstract class AbstractLog {
      *  @param errorKey    The key for the localized error message.
      */
     public void error(DiagnosticFlag flag, int pos, Error errorKey) {
-        report(diags.error(flag, source, wrap(pos), errorKey));
+        report(diags.error(flag, currentSource(), wrap(pos), errorKey));
     }
 
     /** Report a warning, unless suppressed by the  -nowarn option or the
@@ -201,7 +201,7 @@ public abstract class AbstractLog {
      *  @param warningKey    The key for the localized warning message.
      */
     public void warning(Warning warningKey) {
-        report(diags.warning(null, source, null, warningKey));
+        report(diags.warning(null, currentSource(), null, warningKey));
     }
 
     /** Report a lint warning, unless suppressed by the  -nowarn option or the
@@ -239,7 +239,7 @@ public abstract class AbstractLog {
      *  @param warningKey    The key for the localized warning message.
      */
     public void warning(DiagnosticPosition pos, Warning warningKey) {
-        report(diags.warning(null, source, pos, warningKey));
+        report(diags.warning(null, currentSource(), pos, warningKey));
     }
 
     /** Report a lint warning, unless suppressed by the  -nowarn option or the
@@ -260,7 +260,7 @@ public abstract class AbstractLog {
      *  @param warningKey    The key for the localized warning message.
      */
     public void warning(LintCategory lc, DiagnosticPosition pos, Warning warningKey) {
-        report(diags.warning(lc, source, pos, warningKey));
+        report(diags.warning(lc, currentSource(), pos, warningKey));
     }
 
     /** Report a warning, unless suppressed by the  -nowarn option or the
@@ -279,7 +279,7 @@ public abstract class AbstractLog {
      *  @param warningKey    The key for the localized warning message.
      */
     public void warning(int pos, Warning warningKey) {
-        report(diags.warning(null, source, wrap(pos), warningKey));
+        report(diags.warning(null, currentSource(), wrap(pos), warningKey));
     }
 
     /** Report a warning.
@@ -296,7 +296,7 @@ public abstract class AbstractLog {
      *  @param warningKey    The key for the localized warning message.
      */
     public void mandatoryWarning(DiagnosticPosition pos, Warning warningKey) {
-        report(diags.mandatoryWarning(null, source, pos, warningKey));
+        report(diags.mandatoryWarning(null, currentSource(), pos, warningKey));
     }
 
     /** Report a warning.
@@ -315,7 +315,7 @@ public abstract class AbstractLog {
      *  @param warningKey    The key for the localized warning message.
      */
     public void mandatoryWarning(LintCategory lc, DiagnosticPosition pos, Warning warningKey) {
-        report(diags.mandatoryWarning(lc, source, pos, warningKey));
+        report(diags.mandatoryWarning(lc, currentSource(), pos, warningKey));
     }
 
     /** Provide a non-fatal notification, unless suppressed by the -nowarn option.
@@ -330,7 +330,7 @@ public abstract class AbstractLog {
      *  @param noteKey    The key for the localized notification message.
      */
     public void note(Note noteKey) {
-        report(diags.note(source, null, noteKey));
+        report(diags.note(currentSource(), null, noteKey));
     }
 
     /** Provide a non-fatal notification, unless suppressed by the -nowarn option.
@@ -345,7 +345,7 @@ public abstract class AbstractLog {
      *  @param noteKey    The key for the localized notification message.
      */
     public void note(DiagnosticPosition pos, Note noteKey) {
-        report(diags.note(source, pos, noteKey));
+        report(diags.note(currentSource(), pos, noteKey));
     }
 
     /** Provide a non-fatal notification, unless suppressed by the -nowarn option.
@@ -360,7 +360,7 @@ public abstract class AbstractLog {
      *  @param noteKey    The key for the localized notification message.
      */
     public void note(int pos, Note noteKey) {
-        report(diags.note(source, wrap(pos), noteKey));
+        report(diags.note(currentSource(), wrap(pos), noteKey));
     }
 
     /** Provide a non-fatal notification, unless suppressed by the -nowarn option.
@@ -70,7 +70,7 @@ public class Bits {
          */
         NORMAL;
 
-        static BitsState getState(int[] someBits, boolean reset) {
+        static BitsState getState(long[] someBits, boolean reset) {
             if (reset) {
                 return UNKNOWN;
             } else {
@@ -84,13 +84,24 @@ public class Bits {
 
     }
 
-    private final static int wordlen = 32;
-    private final static int wordshift = 5;
-    private final static int wordmask = wordlen - 1;
+    private final static int wordlen = 64;
+    private final static int wordshift = 6;
 
-    public int[] bits = null;
+    /** The extent of a set is measured in units of 32 bits, see {@link #units}.
+     */
+    private final static int unitshift = 5;
+
+    public long[] bits = null;
     // This field will store last version of bits after every change.
-    private static final int[] unassignedBits = new int[0];
+    private static final long[] unassignedBits = new long[0];
+
+    /** The extent of this set, in 32 bit units. The binary operations only
+     *  touch the units covered by their argument, which was the length of the
+     *  int[] that used to hold the set, so the extent is still kept at that
+     *  granularity. Words of {@code bits} beyond the extent are always zero,
+     *  the array itself may be longer when its storage has been reused.
+     */
+    private int units;
 
     protected BitsState currentState;
 
@@ -101,21 +112,24 @@ public class Bits {
     }
 
     public Bits(Bits someBits) {
-        this(someBits.dup().bits, BitsState.getState(someBits.bits, false));
+        this(someBits.dupBits(), someBits.units, BitsState.getState(someBits.bits, false));
+        someBits.currentState = BitsState.NORMAL;
     }
 
     public Bits(boolean reset) {
-        this(unassignedBits, BitsState.getState(unassignedBits, reset));
+        this(unassignedBits, 0, BitsState.getState(unassignedBits, reset));
     }
 
     /** Construct a set consisting initially of given bit vector.
      */
-    protected Bits(int[] bits, BitsState initState) {
+    protected Bits(long[] bits, int units, BitsState initState) {
         this.bits = bits;
+        this.units = units;
         this.currentState = initState;
         switch (initState) {
             case UNKNOWN:
                 this.bits = null;
+                this.units = 0;
                 break;
             case NORMAL:
                 Assert.check(bits != unassignedBits);
@@ -123,9 +137,19 @@ public class Bits {
         }
     }
 
+    /** The number of words needed to hold the given number of units.
+     */
+    private static int wordsFor(int units) {
+        return (units + 1) >>> 1;
+    }
+
     protected void sizeTo(int len) {
-        if (bits.length < len) {
-            bits = Arrays.copyOf(bits, len);
+        if (units < len) {
+            int words = wordsFor(len);
+            if (bits.length < words) {
+                bits = Arrays.copyOf(bits, words);
+            }
+            units = len;
         }
     }
 
@@ -133,9 +157,7 @@ public class Bits {
      */
     public void clear() {
         Assert.check(currentState != BitsState.UNKNOWN);
-        for (int i = 0; i < bits.length; i++) {
-            bits[i] = 0;
-        }
+        Arrays.fill(bits, 0, wordsFor(units), 0L);
         currentState = BitsState.NORMAL;
     }
 
@@ -145,6 +167,7 @@ public class Bits {
 
     protected void internalReset() {
         bits = null;
+        units = 0;
         currentState = BitsState.UNKNOWN;
     }
 
@@ -152,8 +175,26 @@ public class Bits {
         return currentState == BitsState.UNKNOWN;
     }
 
+    /** Make this set a copy of someBits. The words already allocated by
+     *  this set are reused when they are enough to hold the copy.
+     */
     public Bits assign(Bits someBits) {
-        bits = someBits.dup().bits;
+        Assert.check(someBits.currentState != BitsState.UNKNOWN);
+        if (someBits.currentState != BitsState.NORMAL) {
+            bits = someBits.bits;
+        } else {
+            int words = wordsFor(someBits.units);
+            if (bits != null && bits != unassignedBits && bits.length >= words) {
+                System.arraycopy(someBits.bits, 0, bits, 0, words);
+                if (units > someBits.units) {
+                    Arrays.fill(bits, words, wordsFor(units), 0L);
+                }
+            } else {
+                bits = Arrays.copyOf(someBits.bits, words);
+            }
+        }
+        units = someBits.units;
+        someBits.currentState = BitsState.NORMAL;
         currentState = BitsState.NORMAL;
         return this;
     }
@@ -161,20 +202,16 @@ public class Bits {
     /** Return a copy of this set.
      */
     public Bits dup() {
-        Assert.check(currentState != BitsState.UNKNOWN);
-        Bits tmp = new Bits();
-        tmp.bits = dupBits();
-        currentState = BitsState.NORMAL;
-        return tmp;
+        return new Bits(this);
     }
 
-    protected int[] dupBits() {
-        int [] result;
+    protected long[] dupBits() {
+        Assert.check(currentState != BitsState.UNKNOWN);
+        long[] result;
         if (currentState != BitsState.NORMAL) {
             result = bits;
         } else {
-            result = new int[bits.length];
-            System.arraycopy(bits, 0, result, 0, bits.length);
+            result = Arrays.copyOf(bits, wordsFor(units));
         }
         return result;
     }
@@ -184,9 +221,8 @@ public class Bits {
     public void incl(int x) {
         Assert.check(currentState != BitsState.UNKNOWN);
         Assert.check(x >= 0);
-        sizeTo((x >>> wordshift) + 1);
-        bits[x >>> wordshift] = bits[x >>> wordshift] |
-            (1 << (x & wordmask));
+        sizeTo((x >>> unitshift) + 1);
+        bits[x >>> wordshift] |= 1L << x;
         currentState = BitsState.NORMAL;
     }
 
@@ -195,10 +231,19 @@ public class Bits {
      */
     public void inclRange(int start, int limit) {
         Assert.check(currentState != BitsState.UNKNOWN);
-        sizeTo((limit >>> wordshift) + 1);
-        for (int x = start; x < limit; x++) {
-            bits[x >>> wordshift] = bits[x >>> wordshift] |
-                (1 << (x & wordmask));
+        sizeTo((limit >>> unitshift) + 1);
+        if (start < limit) {
+            int first = start >>> wordshift;
+            int last = (limit - 1) >>> wordshift;
+            long firstMask = -1L << start;
+            long lastMask = -1L >>> -limit;
+            if (first == last) {
+                bits[first] |= firstMask & lastMask;
+            } else {
+                bits[first] |= firstMask;
+                Arrays.fill(bits, first + 1, last, -1L);
+                bits[last] |= lastMask;
+            }
         }
         currentState = BitsState.NORMAL;
     }
@@ -207,10 +252,13 @@ public class Bits {
      */
     public void excludeFrom(int start) {
         Assert.check(currentState != BitsState.UNKNOWN);
-        Bits temp = new Bits();
-        temp.sizeTo(bits.length);
-        temp.inclRange(0, start);
-        internalAndSet(temp);
+        sizeTo((start >>> unitshift) + 1);
+        int windex = start >>> wordshift;
+        int words = wordsFor(units);
+        if (windex < words) {
+            bits[windex] &= ~(-1L << start);
+            Arrays.fill(bits, windex + 1, words, 0L);
+        }
         currentState = BitsState.NORMAL;
     }
 
@@ -219,9 +267,8 @@ public class Bits {
     public void excl(int x) {
         Assert.check(currentState != BitsState.UNKNOWN);
         Assert.check(x >= 0);
-        sizeTo((x >>> wordshift) + 1);
-        bits[x >>> wordshift] = bits[x >>> wordshift] &
-            ~(1 << (x & wordmask));
+        sizeTo((x >>> unitshift) + 1);
+        bits[x >>> wordshift] &= ~(1L << x);
         currentState = BitsState.NORMAL;
     }
 
@@ -230,8 +277,8 @@ public class Bits {
     public boolean isMember(int x) {
         Assert.check(currentState != BitsState.UNKNOWN);
         return
-            0 <= x && x < (bits.length << wordshift) &&
-            (bits[x >>> wordshift] & (1 << (x & wordmask))) != 0;
+            0 <= x && x < (units << unitshift) &&
+            (bits[x >>> wordshift] & (1L << x)) != 0;
     }
 
     /** {@literal this set = this set & xs}.
@@ -245,9 +292,14 @@ public class Bits {
 
     protected void internalAndSet(Bits xs) {
         Assert.check(currentState != BitsState.UNKNOWN);
-        sizeTo(xs.bits.length);
-        for (int i = 0; i < xs.bits.length; i++) {
-            bits[i] = bits[i] & xs.bits[i];
+        sizeTo(xs.units);
+        int full = xs.units >>> 1;
+        for (int i = 0; i < full; i++) {
+            bits[i] &= xs.bits[i];
+        }
+        if ((xs.units & 1) != 0) {
+            // the upper half of the last word lies beyond xs and is kept
+            bits[full] &= xs.bits[full] | 0xFFFFFFFF00000000L;
         }
     }
 
@@ -255,9 +307,9 @@ public class Bits {
      */
     public Bits orSet(Bits xs) {
         Assert.check(currentState != BitsState.UNKNOWN);
-        sizeTo(xs.bits.length);
-        for (int i = 0; i < xs.bits.length; i++) {
-            bits[i] = bits[i] | xs.bits[i];
+        sizeTo(xs.units);
+        for (int i = 0, words = wordsFor(xs.units); i < words; i++) {
+            bits[i] |= xs.bits[i];
         }
         currentState = BitsState.NORMAL;
         return this;
@@ -267,10 +319,8 @@ public class Bits {
      */
     public Bits diffSet(Bits xs) {
         Assert.check(currentState != BitsState.UNKNOWN);
-        for (int i = 0; i < bits.length; i++) {
-            if (i < xs.bits.length) {
-                bits[i] = bits[i] & ~xs.bits[i];
-            }
+        for (int i = 0, words = Math.min(wordsFor(units), wordsFor(xs.units)); i < words; i++) {
+            bits[i] &= ~xs.bits[i];
         }
         currentState = BitsState.NORMAL;
         return this;
@@ -280,30 +330,14 @@ public class Bits {
      */
     public Bits xorSet(Bits xs) {
         Assert.check(currentState != BitsState.UNKNOWN);
-        sizeTo(xs.bits.length);
-        for (int i = 0; i < xs.bits.length; i++) {
-            bits[i] = bits[i] ^ xs.bits[i];
+        sizeTo(xs.units);
+        for (int i = 0, words = wordsFor(xs.units); i < words; i++) {
+            bits[i] ^= xs.bits[i];
         }
         currentState = BitsState.NORMAL;
         return this;
     }
 
-    /** Count trailing zero bits in an int. Algorithm from "Hacker's
-     *  Delight" by Henry S. Warren Jr. (figure 5-13)
-     */
-    private static int trailingZeroBits(int x) {
-        Assert.check(wordlen == 32);
-        if (x == 0) {
-            return 32;
-        }
-        int n = 1;
-        if ((x & 0xffff) == 0) { n += 16; x >>>= 16; }
-        if ((x & 0x00ff) == 0) { n +=  8; x >>>=  8; }
-        if ((x & 0x000f) == 0) { n +=  4; x >>>=  4; }
-        if ((x & 0x0003) == 0) { n +=  2; x >>>=  2; }
-        return n - (x&1);
-    }
-
     /** Return the index of the least bit position &ge; x that is set.
      *  If none are set, returns -1.  This provides a nice way to iterate
      *  over the members of a bit set:
@@ -314,16 +348,17 @@ public class Bits {
     public int nextBit(int x) {
         Assert.check(currentState != BitsState.UNKNOWN);
         int windex = x >>> wordshift;
-        if (windex >= bits.length) {
+        int words = wordsFor(units);
+        if (windex >= words) {
             return -1;
         }
-        int word = bits[windex] & ~((1 << (x & wordmask))-1);
+        long word = bits[windex] & (-1L << x);
         while (true) {
             if (word != 0) {
-                return (windex << wordshift) + trailingZeroBits(word);
+                return (windex << wordshift) + Long.numberOfTrailingZeros(word);
             }
             windex++;
-            if (windex >= bits.length) {
+            if (windex >= words) {
                 return -1;
             }
             word = bits[windex];
@@ -334,9 +369,9 @@ public class Bits {
      */
     @Override
     public String toString() {
-        if (bits != null && bits.length > 0) {
-            char[] digits = new char[bits.length * wordlen];
-            for (int i = 0; i < bits.length * wordlen; i++) {
+        if (bits != null && units > 0) {
+            char[] digits = new char[units << unitshift];
+            for (int i = 0; i < digits.length; i++) {
                 digits[i] = isMember(i) ? '1' : '0';
             }
             return new String(digits);
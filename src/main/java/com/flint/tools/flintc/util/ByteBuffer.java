@@ -146,7 +146,10 @@ public class ByteBuffer {
     /** Append a name.
      */
     public void appendName(Name name) {
-        appendBytes(name.getByteArray(), name.getByteOffset(), name.getByteLength());
+        int len = name.getByteLength();
+        elems = ArrayUtils.ensureCapacity(elems, length + len);
+        name.getBytes(elems, length);
+        length += len;
     }
 
     /** Reset to zero length.
@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package com.flint.tools.flintc.util;
+
+import java.lang.ref.SoftReference;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.IntSupplier;
+
+/** The caches kept by the compiler during a compilation, such as the
+ *  caches of Types, Infer and DeferredAttr, with their statistics.
+ *
+ *  <p>Every cache has a name, and a policy that decides how long its
+ *  entries are kept. The default policy of a cache is set by its owner,
+ *  and may be replaced with {@code -XDcache.<name>=<policy>}, where the
+ *  policy is one of {@code strong}, {@code weak}, {@code soft} or
+ *  {@code lru[:<size>]}; a plain number {@code <size>} stands for
+ *  {@code lru:<size>}. With {@code -XDcacheStats} the statistics of all
+ *  caches are printed at the end of the compilation.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class Caches {
+
+    /** The context key for the caches. */
+    public static final Context.Key<Caches> cachesKey = new Context.Key<>();
+
+    /** Get the Caches instance for this context. */
+    public static Caches instance(Context context) {
+        Caches instance = context.get(cachesKey);
+        if (instance == null)
+            instance = new Caches(context);
+        return instance;
+    }
+
+    /** The number of entries of an LRU cache, unless given otherwise. */
+    public static final int DEFAULT_SIZE = 4096;
+
+    private final Options options;
+
+    /** The statistics of all caches, in the order they were created. */
+    private final Map<String, Stats> stats = new LinkedHashMap<>();
+
+    protected Caches(Context context) {
+        context.put(cachesKey, this);
+        options = Options.instance(context);
+    }
+
+    /** How long a cache keeps its entries. */
+    public enum Policy {
+        /** Entries are kept until they are removed or the cache is cleared. */
+        STRONG("strong"),
+        /** Entries are kept as long as their keys are reachable. */
+        WEAK("weak"),
+        /** Entries are kept as long as their keys are reachable, and their
+         *  values may also be collected when memory runs short. */
+        SOFT("soft"),
+        /** At most a given number of entries are kept, evicting the least
+         *  recently used ones. */
+        LRU("lru");
+
+        public final String name;
+
+        Policy(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * The statistics of a cache, or of a family of caches which share a
+     * name, such as the speculative caches of deferred types.
+     */
+    public static class Stats {
+        public final String name;
+        public final Policy policy;
+        public final int size;
+
+        /** Lookups that found a valid entry. */
+        public int hits;
+        /** Lookups that did not, including the stale and collected ones. */
+        public int misses;
+        /** Lookups that found an entry that was no longer valid. */
+        public int stale;
+        /** Lookups that found an entry whose value had been collected. */
+        public int collected;
+        /** Entries evicted to stay within the size of an LRU cache. */
+        public int evictions;
+
+        /** The current number of entries, if known. */
+        IntSupplier entries;
+
+        Stats(String name, Policy policy, int size) {
+            this.name = name;
+            this.policy = policy;
+            this.size = size;
+        }
+
+        public void hit() {
+            hits++;
+        }
+
+        public void miss() {
+            misses++;
+        }
+
+        /** Record a lookup that found an entry that was no longer valid. */
+        public void stale() {
+            stale++;
+            misses++;
+        }
+
+        /** Set the function that reports the number of entries. */
+        public void setEntries(IntSupplier entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(name).append(": ").append(policy.name);
+            if (policy == Policy.LRU)
+                sb.append(':').append(size);
+            sb.append(", ").append(hits).append(" hits, ")
+                    .append(misses).append(" misses (")
+                    .append(stale).append(" stale, ")
+                    .append(collected).append(" collected), ")
+                    .append(evictions).append(" evictions");
+            if (entries != null)
+                sb.append(", ").append(entries.getAsInt()).append(" entries");
+            return sb.toString();
+        }
+    }
+
+    /**
+     * A map from keys to cached values, which keeps its entries according
+     * to the policy of its statistics, and counts the lookups.
+     */
+    public static class Cache<K, V> {
+        public final Stats stats;
+        private final Map<K, Object> map;
+
+        public Cache(Stats stats) {
+            this.stats = stats;
+            switch (stats.policy) {
+                case STRONG:
+                    map = new HashMap<>();
+                    break;
+                case WEAK:
+                case SOFT:
+                    map = new WeakHashMap<>();
+                    break;
+                case LRU:
+                    map = new LinkedHashMap<K, Object>(Math.min(stats.size, DEFAULT_SIZE), 0.75f, true) {
+                        private static final long serialVersionUID = 0;
+
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<K, Object> eldest) {
+                            if (size() > stats.size) {
+                                stats.evictions++;
+                                return true;
+                            }
+                            return false;
+                        }
+                    };
+                    break;
+                default:
+                    throw new AssertionError(stats.policy);
+            }
+        }
+
+        /** Look up a key, and count the lookup as a hit or a miss. */
+        public V get(K key) {
+            V value = peek(key);
+            if (value != null)
+                stats.hits++;
+            else
+                stats.misses++;
+            return value;
+        }
+
+        /** Look up a key without counting the lookup; for caches whose
+         *  entries have to be validated by their owner. */
+        @SuppressWarnings("unchecked")
+        public V peek(K key) {
+            Object value = map.get(key);
+            if (value instanceof Ref) {
+                value = ((Ref<?>)value).get();
+                if (value == null) {
+                    stats.collected++;
+                    map.remove(key);
+                }
+            }
+            return (V)value;
+        }
+
+        public void put(K key, V value) {
+            map.put(key, stats.policy == Policy.SOFT ? new Ref<>(value) : value);
+        }
+
+        public void remove(K key) {
+            map.remove(key);
+        }
+
+        public void clear() {
+            map.clear();
+        }
+
+        public int size() {
+            return map.size();
+        }
+
+        /** A soft reference to a value of a soft cache, distinct from any
+         *  value that might itself be a soft reference. */
+        private static class Ref<T> extends SoftReference<T> {
+            Ref(T referent) {
+                super(referent);
+            }
+        }
+    }
+
+    /**
+     * Get the statistics of the caches with the given name, creating them
+     * with the configured policy, or else the given default policy and
+     * size, if there are none yet.
+     */
+    public Stats stats(String name, Policy policy, int size) {
+        Stats s = stats.get(name);
+        if (s == null) {
+            String value = options.get("cache." + name);
+            if (value != null) {
+                int colon = value.indexOf(':');
+                String kind = colon < 0 ? value : value.substring(0, colon);
+                try {
+                    if (colon >= 0) {
+                        size = Integer.parseInt(value.substring(colon + 1));
+                    } else if (!kind.isEmpty() && Character.isDigit(kind.charAt(0))) {
+                        size = Integer.parseInt(kind);
+                        kind = Policy.LRU.name;
+                    }
+                } catch (NumberFormatException e) {
+                    // keep the default size
+                }
+                for (Policy p : Policy.values()) {
+                    if (p.name.equals(kind))
+                        policy = p;
+                }
+            }
+            if (policy == Policy.LRU && size <= 0)
+                size = DEFAULT_SIZE;
+            s = new Stats(name, policy, size);
+            stats.put(name, s);
+        }
+        return s;
+    }
+
+    /**
+     * Create the cache with the given name, with the configured policy, or
+     * else the given default policy.
+     */
+    public <K, V> Cache<K, V> newCache(String name, Policy policy) {
+        return newCache(name, policy, DEFAULT_SIZE);
+    }
+
+    /**
+     * Create the cache with the given name, with the configured policy, or
+     * else the given default policy and size.
+     */
+    public <K, V> Cache<K, V> newCache(String name, Policy policy, int size) {
+        Cache<K, V> cache = new Cache<>(stats(name, policy, size));
+        cache.stats.setEntries(cache::size);
+        return cache;
+    }
+
+    /** The statistics of all caches, in the order they were created. */
+    public Collection<Stats> statistics() {
+        return stats.values();
+    }
+}
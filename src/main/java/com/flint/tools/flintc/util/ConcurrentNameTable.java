@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package com.flint.tools.flintc.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Implementation of Name.Table that may be used by several threads at
+ * once without locking. Lookups walk a bucket chain that is never modified
+ * after publication; a new name is linked in with a compare-and-set on the
+ * bucket head, and the lookup is retried if another thread got there first.
+ * The bytes of all names are copied into an append-only arena made of
+ * fixed-size chunks, so that, as in SharedNameTable, a name does not need
+ * an array of its own, and, as in UnsharedNameTable, the bytes of a name
+ * never move once the name has been published.
+ *
+ * <p>As with the other tables there is exactly one name for a given
+ * sequence of bytes, so names can be compared with {@code ==}; each name
+ * also gets a small unique index, drawn from a counter.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class ConcurrentNameTable extends Name.Table {
+    static public Name.Table create(Names names) {
+        return new ConcurrentNameTable(names);
+    }
+
+    /** The size of a chunk of the byte arena; names longer than a quarter
+     *  of a chunk get an array of their own.
+     */
+    private static final int CHUNK_SIZE = 0x10000;
+
+    /** The hash table for names; a bucket holds the head of an immutable
+     *  chain of names.
+     */
+    private AtomicReferenceArray<NameImpl> hashes;
+
+    /** The mask to be used for hashing
+     */
+    private final int hashMask;
+
+    /** The chunk of the arena that names are currently appended to.
+     */
+    private final AtomicReference<Chunk> chunk = new AtomicReference<>(new Chunk());
+
+    /** The index of the next name to be created.
+     */
+    private final AtomicInteger index = new AtomicInteger();
+
+    /** Scratch buffers used to encode names given as characters.
+     */
+    private final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[256]);
+
+    /** Allocator
+     *  @param names The main name table
+     *  @param hashSize the (constant) size to be used for the hash table
+     *                  needs to be a power of two.
+     */
+    public ConcurrentNameTable(Names names, int hashSize) {
+        super(names);
+        hashMask = hashSize - 1;
+        hashes = new AtomicReferenceArray<>(hashSize);
+    }
+
+    public ConcurrentNameTable(Names names) {
+        this(names, 0x8000);
+    }
+
+    @Override
+    public Name fromChars(char[] cs, int start, int len) {
+        byte[] buf = scratch.get();
+        if (buf.length < len * 3) {
+            buf = new byte[Integer.highestOneBit(len * 3) << 1];
+            scratch.set(buf);
+        }
+        int nbytes = Convert.chars2utf(cs, start, buf, 0, len);
+        return fromUtf(buf, 0, nbytes);
+    }
+
+    @Override
+    public Name fromUtf(byte[] cs, int start, int len) {
+        AtomicReferenceArray<NameImpl> hashes = this.hashes;
+        int h = hashValue(cs, start, len) & hashMask;
+        NameImpl head = hashes.get(h);
+        NameImpl n = lookup(head, null, cs, start, len);
+        if (n != null)
+            return n;
+        n = newName(cs, start, len);
+        while (true) {
+            n.next = head;
+            if (hashes.compareAndSet(h, head, n))
+                return n;
+            // another thread linked in a name; only the names added since
+            // the last attempt need to be compared
+            NameImpl newHead = hashes.get(h);
+            NameImpl other = lookup(newHead, head, cs, start, len);
+            if (other != null)
+                return other;
+            head = newHead;
+        }
+    }
+
+    /** Find a name with the given bytes in a bucket chain, stopping at
+     *  the given entry.
+     */
+    private static NameImpl lookup(NameImpl n, NameImpl stop, byte[] cs, int start, int len) {
+        while (n != stop) {
+            if (n.length == len && equals(n.bytes, n.offset, cs, start, len))
+                return n;
+            n = n.next;
+        }
+        return null;
+    }
+
+    /** Create a name whose bytes are copied into the arena.
+     */
+    private NameImpl newName(byte[] cs, int start, int len) {
+        if (len > CHUNK_SIZE / 4) {
+            byte[] bytes = new byte[len];
+            System.arraycopy(cs, start, bytes, 0, len);
+            return new NameImpl(this, bytes, 0, len, index.getAndIncrement());
+        }
+        while (true) {
+            Chunk c = chunk.get();
+            int offset = c.reserve(len);
+            if (offset >= 0) {
+                System.arraycopy(cs, start, c.bytes, offset, len);
+                return new NameImpl(this, c.bytes, offset, len, index.getAndIncrement());
+            }
+            chunk.compareAndSet(c, new Chunk());
+        }
+    }
+
+    @Override
+    public void dispose() {
+        hashes = null;
+    }
+
+    /** A chunk of the byte arena.
+     */
+    private static class Chunk {
+        final byte[] bytes = new byte[CHUNK_SIZE];
+        final AtomicInteger fill = new AtomicInteger();
+
+        /** Reserve room for the given number of bytes, returning the offset
+         *  of the reserved bytes, or -1 if the chunk is full.
+         */
+        int reserve(int len) {
+            while (true) {
+                int nc = fill.get();
+                if (nc + len > bytes.length)
+                    return -1;
+                if (fill.compareAndSet(nc, nc + len))
+                    return nc;
+            }
+        }
+    }
+
+    static class NameImpl extends Name {
+        /** The next name occupying the same hash bucket; only written
+         *  before the name is published.
+         */
+        NameImpl next;
+
+        /** The array holding the bytes of this name.
+         */
+        final byte[] bytes;
+
+        /** The offset of the bytes of this name in {@code bytes}.
+         */
+        final int offset;
+
+        /** The number of bytes in this name.
+         */
+        final int length;
+
+        /** The unique index of this name.
+         */
+        final int index;
+
+        NameImpl(ConcurrentNameTable table, byte[] bytes, int offset, int length, int index) {
+            super(table);
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+            this.index = index;
+        }
+
+        @Override
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public int getByteLength() {
+            return length;
+        }
+
+        @Override
+        public byte getByteAt(int i) {
+            return bytes[offset + i];
+        }
+
+        @Override
+        public byte[] getByteArray() {
+            return bytes;
+        }
+
+        @Override
+        public int getByteOffset() {
+            return offset;
+        }
+    }
+}
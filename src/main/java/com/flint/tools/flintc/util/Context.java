@@ -25,8 +25,13 @@
 
 package com.flint.tools.flintc.util;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Support for an abstract context, modelled loosely after ThreadLocal
@@ -98,10 +103,26 @@ import java.util.Map;
  *  deletion without notice.</b>
  */
 public class Context {
+    /** The number of keys with an id allocated so far. */
+    private static final AtomicInteger keyCount = new AtomicInteger();
+
     /** The client creates an instance of this class for each key.
      */
     public static class Key<T> {
         // note: we inherit identity equality from Object.
+
+        /** The index of the entry for this key in a context's table, or
+         *  -1 for keys that are looked up by hashing.
+         */
+        final int id;
+
+        public Key() {
+            id = keyCount.getAndIncrement();
+        }
+
+        private Key(int id) {
+            this.id = id;
+        }
     }
 
     /**
@@ -113,19 +134,37 @@ public class Context {
     }
 
     /**
-     * The underlying map storing the data.
+     * The underlying table storing the data, indexed by key id.
      * We maintain the invariant that this table contains only
      * mappings of the form
      * {@literal Key<T> -> T }
      * or
      * {@literal Key<T> -> Factory<T> }
+     * and that the same holds for {@link #ht}.
      */
-    protected final Map<Key<?>,Object> ht = new HashMap<>();
+    private Object[] values;
+
+    /**
+     * The entries for keys without an id, that is, the keys created by
+     * {@link #key(Class)}, one per class and context.
+     */
+    protected final Map<Key<?>,Object> ht;
+
+    /**
+     * The ids of the entries inherited from the context this one was
+     * forked from, which may be replaced in this context.
+     */
+    private BitSet inherited;
+
+    /**
+     * The keys without an id whose entries were inherited from the context
+     * this one was forked from.
+     */
+    private Set<Key<?>> inheritedKeys;
 
     /** Set the factory for the key in this context. */
     public <T> void put(Key<T> key, Factory<T> fac) {
-        checkState(ht);
-        Object old = ht.put(key, fac);
+        Object old = store(key, fac);
         if (old != null)
             throw new AssertionError("duplicate context value");
         checkState(ft);
@@ -136,22 +175,20 @@ public class Context {
     public <T> void put(Key<T> key, T data) {
         if (data instanceof Factory<?>)
             throw new AssertionError("T extends Context.Factory");
-        checkState(ht);
-        Object old = ht.put(key, data);
+        Object old = store(key, data);
         if (old != null && !(old instanceof Factory<?>) && old != data && data != null)
             throw new AssertionError("duplicate context value");
     }
 
     /** Get the value for the key in this context. */
     public <T> T get(Key<T> key) {
-        checkState(ht);
-        Object o = ht.get(key);
+        Object o = lookup(key);
         if (o instanceof Factory<?>) {
             Factory<?> fac = (Factory<?>)o;
             o = fac.make(this);
             if (o instanceof Factory<?>)
                 throw new AssertionError("T extends Context.Factory");
-            Assert.check(ht.get(key) == o);
+            Assert.check(lookup(key) == o);
         }
 
         /* The following cast can't fail unless there was
@@ -162,23 +199,88 @@ public class Context {
         return Context.uncheckedCast(o);
     }
 
-    public Context() {}
+    private Object lookup(Key<?> key) {
+        int id = key.id;
+        if (id < 0) {
+            checkState(ht);
+            return ht.get(key);
+        }
+        Object[] values = this.values;
+        checkState(values);
+        return id < values.length ? values[id] : null;
+    }
+
+    /** Store an entry, returning the previous entry, if any, unless it
+     *  was inherited from the context this one was forked from.
+     */
+    private Object store(Key<?> key, Object value) {
+        int id = key.id;
+        if (id < 0) {
+            checkState(ht);
+            Object old = ht.put(key, value);
+            return inheritedKeys != null && inheritedKeys.remove(key) ? null : old;
+        }
+        checkState(values);
+        if (id >= values.length)
+            values = Arrays.copyOf(values, Math.max(id + 1, keyCount.get()));
+        Object old = values[id];
+        values[id] = value;
+        if (inherited != null && inherited.get(id)) {
+            inherited.clear(id);
+            return null;
+        }
+        return old;
+    }
+
+    public Context() {
+        values = new Object[keyCount.get()];
+        ht = new HashMap<>();
+        ft = new HashMap<>();
+        kt = new HashMap<>();
+    }
+
+    private Context(Context parent) {
+        values = parent.values.clone();
+        ht = new HashMap<>(parent.ht);
+        ft = new HashMap<>(parent.ft);
+        kt = new HashMap<>(parent.kt);
+        inheritedKeys = new HashSet<>(ht.keySet());
+        inherited = new BitSet(values.length);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null)
+                inherited.set(i);
+        }
+    }
+
+    /**
+     * Create a child context that starts out with all the entries of this
+     * context, so that the components created so far are shared by the two
+     * contexts. Entries added afterwards to either context are not seen by
+     * the other, and a child may replace any of the components it inherited
+     * with one of its own, for example to give each thread of a concurrent
+     * compilation its own Log. Note that components keep referring to the
+     * context they were created in.
+     */
+    public Context fork() {
+        checkState(values);
+        return new Context(this);
+    }
 
     /**
      * The table of preregistered factories.
      */
-    private final Map<Key<?>,Factory<?>> ft = new HashMap<>();
+    private final Map<Key<?>,Factory<?>> ft;
 
     /*
      * The key table, providing a unique Key<T> for each Class<T>.
      */
-    private final Map<Class<?>, Key<?>> kt = new HashMap<>();
+    private final Map<Class<?>, Key<?>> kt;
 
     protected <T> Key<T> key(Class<T> clss) {
         checkState(kt);
         Key<T> k = uncheckedCast(kt.get(clss));
         if (k == null) {
-            k = new Key<>();
+            k = new Key<>(-1);
             kt.put(clss, k);
         }
         return k;
@@ -205,11 +307,15 @@ public class Context {
     }
 
     public void dump() {
+        for (Object value : values) {
+            if (value != null)
+                System.err.println(value.getClass());
+        }
         for (Object value : ht.values())
             System.err.println(value == null ? null : value.getClass());
     }
 
-    private static void checkState(Map<?,?> t) {
+    private static void checkState(Object t) {
         if (t == null)
             throw new IllegalStateException();
     }
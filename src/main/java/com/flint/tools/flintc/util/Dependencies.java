@@ -77,6 +77,7 @@ public abstract class Dependencies {
     abstract public void pop();
 
     public enum CompletionCause implements GraphUtils.DependencyKind {
+        ATTRIBUTION,
         CLASS_READER,
         HEADER_PHASE,
         HIERARCHY_PHASE,
@@ -117,7 +118,8 @@ public abstract class Dependencies {
             super(context);
             //fetch filename
             Options options = Options.instance(context);
-            String[] modes = options.get("debug.completionDeps").split(",");
+            String completionDeps = options.get("debug.completionDeps");
+            String[] modes = (completionDeps == null) ? new String[0] : completionDeps.split(",");
             for (String mode : modes) {
                 if (mode.startsWith("file=")) {
                     dependenciesFile = mode.substring(5);
@@ -318,7 +320,11 @@ public abstract class Dependencies {
 
         @Override
         public void pop() {
-            nodeStack.pop();
+            Node n = nodeStack.pop();
+            //classes completed from source otherwise stop reporting their uses
+            if (n.data.completer == Completer.NULL_COMPLETER && !nodeStack.contains(n)) {
+                n.data.completer = this;
+            }
         }
 
         @Override
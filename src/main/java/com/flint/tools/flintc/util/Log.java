@@ -165,6 +165,125 @@ public class Log extends AbstractLog {
         }
     }
 
+    /**
+     * A buffer for the diagnostics of tasks that run on other threads while
+     * the compiler thread waits for them. Each task is given a {@link Slot},
+     * created on the compiler thread in the order in which the tasks would
+     * have run one after the other. While a worker thread has entered a slot,
+     * the diagnostics it reports through this log are kept in the slot and
+     * attributed to the slot's source file, instead of being handled. Once a
+     * task has completed, the compiler thread replays its slot through the
+     * current handler, slot by slot in the same order, so that diagnostics
+     * come out as if the tasks had not run concurrently.
+     *
+     * <p>A slot is filled by one thread at a time and replayed after the task
+     * filling it has completed, so it needs no locking of its own. Tasks must
+     * not change the current source or the handlers of the log.
+     */
+    public class OrderedDiagnosticBuffer {
+
+        /** The number of errors reported before the buffer was opened.
+         */
+        private final int nerrorsBefore;
+
+        /** The positions of the errors reported before the buffer was opened.
+         */
+        private final Set<Pair<JavaFileObject, Integer>> recordedBefore;
+
+        private boolean closed;
+
+        /** Open a buffer; called on the compiler thread.
+         */
+        public OrderedDiagnosticBuffer() {
+            nerrorsBefore = nerrors;
+            recordedBefore = new HashSet<>(recorded);
+            openBuffers++;
+        }
+
+        /** Create the slot of the next task, whose diagnostics refer to the
+         *  given file; called on the compiler thread.
+         */
+        public Slot newSlot(JavaFileObject file) {
+            Assert.check(!closed);
+            return new Slot(getSource(file));
+        }
+
+        /** Stop buffering. The diagnostics of slots that have not been
+         *  replayed are dropped.
+         */
+        public void close() {
+            if (!closed) {
+                closed = true;
+                openBuffers--;
+            }
+        }
+
+        public class Slot {
+            private final DiagnosticSource source;
+            private final ListBuffer<JCDiagnostic> diagnostics = new ListBuffer<>();
+
+            /** The positions of the errors reported in this slot.
+             */
+            private final Set<Pair<JavaFileObject, Integer>> positions = new HashSet<>();
+
+            /** The number of errors in this slot, as the log would count them.
+             */
+            private int errors;
+
+            Slot(DiagnosticSource source) {
+                this.source = source;
+            }
+
+            /** Keep the diagnostics reported on the current thread in this
+             *  slot, until {@link #exit}.
+             */
+            public void enter() {
+                Assert.check(currentSlot.get() == null);
+                currentSlot.set(this);
+            }
+
+            public void exit() {
+                currentSlot.remove();
+            }
+
+            void add(JCDiagnostic diagnostic) {
+                diagnostics.add(diagnostic);
+                if (diagnostic.getType() == DiagnosticType.ERROR && counts(diagnostic))
+                    errors++;
+            }
+
+            /** The number of errors the log will have counted when this slot
+             *  is replayed, if the slots before it hold no errors.
+             */
+            int errorCount() {
+                return nerrorsBefore + errors;
+            }
+
+            /** Would the log count this error, had it been reported right away?
+             */
+            private boolean counts(JCDiagnostic diagnostic) {
+                if (nerrorsBefore + errors >= MaxErrors)
+                    return false;
+                JavaFileObject file = diagnostic.getSource();
+                if (diagnostic.isFlagSet(DiagnosticFlag.MULTIPLE) || file == null)
+                    return true;
+                Pair<JavaFileObject, Integer> coords = new Pair<>(file, diagnostic.getIntPosition());
+                return !recordedBefore.contains(coords) && positions.add(coords);
+            }
+
+            /** Report the diagnostics kept in this slot, in the order in which
+             *  they were reported; called on the compiler thread once the task
+             *  has completed.
+             */
+            public void replay() {
+                Assert.check(currentSlot.get() == null);
+                JCDiagnostic diagnostic;
+                while ((diagnostic = diagnostics.poll()) != null)
+                    report(diagnostic);
+            }
+        }
+    }
+
     public enum WriterKind { NOTICE, WARNING, ERROR, STDOUT, STDERR }
 
     private final Map<WriterKind, PrintWriter> writers;
@@ -221,6 +340,17 @@ public class Log extends AbstractLog {
      */
     private DiagnosticHandler diagnosticHandler;
 
+    /**
+     * The number of ordered diagnostic buffers that are open; while there
+     * are none, no thread can be in a slot.
+     */
+    private volatile int openBuffers;
+
+    /**
+     * The slot of the buffered task running on the current thread, if any.
+     */
+    private final ThreadLocal<OrderedDiagnosticBuffer.Slot> currentSlot = new ThreadLocal<>();
+
     /** Get the Log instance for this context. */
     public static Log instance(Context context) {
         Log instance = context.get(logKey);
@@ -431,12 +561,50 @@ public class Log extends AbstractLog {
         getSource(name).setEndPosTable(endPosTable);
     }
 
+    /** Discard the diagnostic source, including any end position table,
+     *  recorded for a file whose compilation is complete.
+     *  It will be recreated if any further diagnostics refer to the file.
+     */
+    public void discardSource(JavaFileObject name) {
+        Assert.checkNonNull(name);
+        if (source != null && source.getFile() == name)
+            return;
+        sourceMap.remove(name);
+    }
+
     /** Return current sourcefile.
      */
     public JavaFileObject currentSourceFile() {
+        DiagnosticSource source = currentSource();
         return source == null ? null : source.getFile();
     }
 
+    /** Return the source of the current file, which is the file of its slot
+     *  for a task whose diagnostics are buffered.
+     */
+    @Override
+    public DiagnosticSource currentSource() {
+        if (openBuffers > 0) {
+            OrderedDiagnosticBuffer.Slot slot = currentSlot.get();
+            if (slot != null)
+                return slot.source;
+        }
+        return source;
+    }
+
+    /** Return the number of errors encountered so far. For a task whose
+     *  diagnostics are buffered, this counts the errors it has reported
+     *  itself, as the log will count them when they are replayed.
+     */
+    public int currentErrorCount() {
+        if (openBuffers > 0) {
+            OrderedDiagnosticBuffer.Slot slot = currentSlot.get();
+            if (slot != null)
+                return slot.errorCount();
+        }
+        return nerrors;
+    }
+
     /** Get the current diagnostic formatter.
      */
     public DiagnosticFormatter<JCDiagnostic> getDiagnosticFormatter() {
@@ -647,6 +815,13 @@ public class Log extends AbstractLog {
      */
     @Override
     public void report(JCDiagnostic diagnostic) {
+        if (openBuffers > 0) {
+            OrderedDiagnosticBuffer.Slot slot = currentSlot.get();
+            if (slot != null) {
+                slot.add(diagnostic);
+                return;
+            }
+        }
         diagnosticHandler.report(diagnostic);
      }
 
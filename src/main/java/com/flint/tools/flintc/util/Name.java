@@ -226,6 +226,13 @@ public abstract class Name implements javax.lang.model.element.Name {
          */
         public abstract void dispose();
 
+        /** Describe the memory used by this table, or return null if the
+         *  table does not keep track of it.
+         */
+        public String footprint() {
+            return null;
+        }
+
         /** The hashcode of a name.
          */
         protected static int hashValue(byte bytes[], int offset, int length) {
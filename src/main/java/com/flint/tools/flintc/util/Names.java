@@ -366,7 +366,13 @@ public class Names {
 
     protected Name.Table createTable(Options options) {
         boolean useUnsharedTable = options.isSet("useUnsharedTable");
-        if (useUnsharedTable)
+        if (options.isSet("useSynchronizedTable"))
+            return SynchronizedNameTable.create(this);
+        else if (options.isSet("parallelParse") || options.isSet("useConcurrentTable"))
+            return ConcurrentNameTable.create(this);
+        else if (options.isSet("useOffHeapTable"))
+            return OffHeapNameTable.create(this);
+        else if (useUnsharedTable)
             return UnsharedNameTable.create(this);
         else
             return SharedNameTable.create(this);
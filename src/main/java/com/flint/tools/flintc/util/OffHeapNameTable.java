@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package com.flint.tools.flintc.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Implementation of Name.Table that keeps the bytes of all names outside
+ * the Java heap, in direct byte buffers of a fixed size ("slabs"). When a
+ * slab is full a new one is started, so that, unlike SharedNameTable,
+ * growing the table never copies the bytes of existing names, and the
+ * garbage collector never has to scan or move them; only the Name objects
+ * themselves, and the hash table, live on the heap.
+ *
+ * <p>Names in this table do not have a backing byte array; the accessors
+ * of Name that work on the bytes of a name are overridden to read from the
+ * slab, and {@link Name#getByteArray} returns a copy of the bytes, at
+ * offset zero. Callers that only need to copy the bytes should prefer
+ * {@link Name#getBytes}.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class OffHeapNameTable extends Name.Table {
+    static public Name.Table create(Names names) {
+        return new OffHeapNameTable(names);
+    }
+
+    /** The size of a slab; longer names get a slab of their own.
+     */
+    private static final int SLAB_SIZE = 0x100000;
+
+    /** The hash table for names.
+     */
+    private NameImpl[] hashes;
+
+    /** The mask to be used for hashing
+     */
+    private int hashMask;
+
+    /** The slab that names are currently appended to.
+     */
+    private ByteBuffer slab;
+
+    /** The number of slabs allocated so far.
+     */
+    private int slabCount;
+
+    /** The number of bytes reserved in all slabs allocated so far.
+     */
+    private long reservedBytes;
+
+    /** The number of bytes used in all slabs allocated so far.
+     */
+    private long usedBytes;
+
+    /** The number of names in the table.
+     */
+    private int size;
+
+    /** Scratch buffer used to encode names given as characters, and to
+     *  compare names.
+     */
+    private byte[] scratch = new byte[256];
+
+    /** Allocator
+     *  @param names The main name table
+     *  @param hashSize the initial size to be used for the hash table
+     *                  needs to be a power of two.
+     */
+    public OffHeapNameTable(Names names, int hashSize) {
+        super(names);
+        hashMask = hashSize - 1;
+        hashes = new NameImpl[hashSize];
+        slab = newSlab(SLAB_SIZE);
+    }
+
+    public OffHeapNameTable(Names names) {
+        this(names, 0x8000);
+    }
+
+    @Override
+    public Name fromChars(char[] cs, int start, int len) {
+        byte[] bytes = scratch = ArrayUtils.ensureCapacity(scratch, len * 3);
+        int nbytes = Convert.chars2utf(cs, start, bytes, 0, len);
+        return fromUtf(bytes, 0, nbytes);
+    }
+
+    @Override
+    public Name fromUtf(byte[] cs, int start, int len) {
+        int h = hashValue(cs, start, len) & hashMask;
+        NameImpl n = hashes[h];
+        while (n != null &&
+                (n.length != len || !equals(n.slab, n.offset, cs, start, len))) {
+            n = n.next;
+        }
+        if (n == null) {
+            ByteBuffer s = slab;
+            if (s.remaining() < len) {
+                if (len > SLAB_SIZE / 4) {
+                    s = newSlab(len);
+                } else {
+                    s = slab = newSlab(SLAB_SIZE);
+                }
+            }
+            int offset = s.position();
+            s.put(cs, start, len);
+            usedBytes += len;
+            n = new NameImpl(this, s, offset, len, size++);
+            n.next = hashes[h];
+            hashes[h] = n;
+            if (size > hashes.length * 2) {
+                rehash();
+            }
+        }
+        return n;
+    }
+
+    private ByteBuffer newSlab(int size) {
+        slabCount++;
+        reservedBytes += size;
+        return ByteBuffer.allocateDirect(size);
+    }
+
+    /** Compare the bytes of a name in a slab with a subarray.
+     */
+    private static boolean equals(ByteBuffer slab, int offset,
+            byte[] bytes, int start, int length) {
+        int i = 0;
+        while (i < length && slab.get(offset + i) == bytes[start + i]) {
+            i++;
+        }
+        return i == length;
+    }
+
+    /** Double the size of the hash table.
+     */
+    private void rehash() {
+        NameImpl[] oldHashes = hashes;
+        hashes = new NameImpl[oldHashes.length * 2];
+        hashMask = hashes.length - 1;
+        for (NameImpl n : oldHashes) {
+            while (n != null) {
+                NameImpl next = n.next;
+                int len = n.length;
+                byte[] bytes = scratch = ArrayUtils.ensureCapacity(scratch, len);
+                n.getBytes(bytes, 0);
+                int h = hashValue(bytes, 0, len) & hashMask;
+                n.next = hashes[h];
+                hashes[h] = n;
+                n = next;
+            }
+        }
+    }
+
+    @Override
+    public String footprint() {
+        return String.format("%d names, %d bytes in %d off-heap slabs (%d reserved), %d hash buckets",
+                size, usedBytes, slabCount, reservedBytes, hashes.length);
+    }
+
+    @Override
+    public void dispose() {
+        // the slabs are released once the names are no longer reachable
+        hashes = null;
+        slab = null;
+    }
+
+    static class NameImpl extends Name {
+        /** The next name occupying the same hash bucket.
+         */
+        NameImpl next;
+
+        /** The slab holding the bytes of this name.
+         */
+        final ByteBuffer slab;
+
+        /** The offset of the bytes of this name in the slab.
+         */
+        final int offset;
+
+        /** The number of bytes in this name.
+         */
+        final int length;
+
+        /** The unique index of this name.
+         */
+        final int index;
+
+        NameImpl(OffHeapNameTable table, ByteBuffer slab, int offset, int length, int index) {
+            super(table);
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+            this.index = index;
+        }
+
+        @Override
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public int getByteLength() {
+            return length;
+        }
+
+        @Override
+        public byte getByteAt(int i) {
+            return slab.get(offset + i);
+        }
+
+        @Override
+        public void getBytes(byte[] cs, int start) {
+            for (int i = 0; i < length; i++) {
+                cs[start + i] = slab.get(offset + i);
+            }
+        }
+
+        /** Return a copy of the bytes of this name.
+         */
+        @Override
+        public byte[] getByteArray() {
+            return toUtf();
+        }
+
+        @Override
+        public int getByteOffset() {
+            return 0;
+        }
+
+        @Override
+        public int lastIndexOf(byte b) {
+            int i = length - 1;
+            while (i >= 0 && slab.get(offset + i) != b) i--;
+            return i;
+        }
+
+        @Override
+        public boolean startsWith(Name prefix) {
+            int prefixLength = prefix.getByteLength();
+            if (length < prefixLength)
+                return false;
+            int i = 0;
+            while (i < prefixLength && slab.get(offset + i) == prefix.getByteAt(i))
+                i++;
+            return i == prefixLength;
+        }
+
+        @Override
+        public Name subName(int start, int end) {
+            if (end < start) end = start;
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = slab.get(offset + start + i);
+            }
+            return table.fromUtf(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public String toString() {
+            return Convert.utf2string(toUtf(), 0, length);
+        }
+    }
+}
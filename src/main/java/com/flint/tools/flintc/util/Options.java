@@ -94,6 +94,22 @@ public class Options {
         return (value == null) ? defaultValue : Boolean.parseBoolean(value);
     }
 
+    /**
+     * Get the number of threads requested by an undocumented option, which
+     * may be given as {@code -XDname=n}, or as {@code -XDname} to request
+     * one thread per available processor. Returns 1 if the option is not set.
+     */
+    public int getThreadCount(String name) {
+        String value = get(name);
+        if (value == null)
+            return 1;
+        try {
+            return Math.max(1, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+    }
+
     /**
      * Check if the value for an undocumented option has been set.
      */
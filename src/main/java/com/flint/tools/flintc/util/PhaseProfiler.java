@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package com.flint.tools.flintc.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.tools.JavaFileObject;
+
+/** A profiler that records the wall time, CPU time and allocated bytes
+ *  spent in each phase of the compiler, broken down per compilation unit.
+ *  Enabled by {@code -XDprofile=file}; the report is written when the
+ *  compilation finishes, as CSV if the file name ends in {@code .csv} and
+ *  as JSON otherwise. {@code -XDprofile} on its own writes
+ *  {@value #DEFAULT_REPORT}.
+ *
+ *  <p>Each phase is timed with {@link #start} and {@link #end}, which must
+ *  be properly nested on each thread. A phase is charged with its own cost
+ *  only: while a nested phase is running (for example, a source file that is
+ *  parsed and entered while attributing another one), the time and
+ *  allocations are charged to the nested phase and its compilation unit.
+ *  CPU time and allocations are measured with the platform's
+ *  {@link ThreadMXBean} where supported, and are reported as -1 otherwise.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class PhaseProfiler {
+    protected static final Context.Key<PhaseProfiler> phaseProfilerKey = new Context.Key<>();
+
+    /** The report written by {@code -XDprofile} without a file name. */
+    public static final String DEFAULT_REPORT = "flintc-profile.json";
+
+    /** The phases that are profiled, in the order in which they are reported. */
+    public enum Phase {
+        PARSE("parse"),
+        ENTER("enter"),
+        IMPORTS("imports"),
+        HIERARCHY("hierarchy"),
+        HEADER("header"),
+        MEMBERS("members"),
+        ANNOTATE("annotate"),
+        ATTRIBUTE("attribute"),
+        FLOW("flow"),
+        TRANSTYPES("transtypes"),
+        LAMBDA_TO_METHOD("lambdaToMethod"),
+        LOWER("lower"),
+        GENERATE("gen"),
+        CLASSWRITER("classwriter");
+
+        public final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+    }
+
+    /** Get the PhaseProfiler instance for this context. */
+    public static PhaseProfiler instance(Context context) {
+        PhaseProfiler instance = context.get(phaseProfilerKey);
+        if (instance == null)
+            instance = new PhaseProfiler(context);
+        return instance;
+    }
+
+    private static final int WALL = 0, CPU = 1, ALLOCATED = 2, COUNT = 3;
+
+    private final Log log;
+    private final String reportFile;
+    private final ThreadMXBean threadBean;
+    private final com.sun.management.ThreadMXBean allocationBean;
+
+    /** The totals per compilation unit, indexed by phase and then measure.
+     *  Phases run outside any compilation unit are recorded under "".
+     */
+    private final Map<String, long[][]> totals = new ConcurrentHashMap<>();
+
+    /** The phases currently running on each thread. */
+    private final ThreadLocal<Deque<Frame>> frames = ThreadLocal.withInitial(ArrayDeque::new);
+
+    protected PhaseProfiler(Context context) {
+        context.put(phaseProfilerKey, this);
+        log = Log.instance(context);
+        String value = Options.instance(context).get("profile");
+        reportFile = (value == null) ? null : value.equals("profile") ? DEFAULT_REPORT : value;
+        if (reportFile != null) {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            threadBean = bean.isCurrentThreadCpuTimeSupported() ? bean : null;
+            if (threadBean != null && !threadBean.isThreadCpuTimeEnabled())
+                threadBean.setThreadCpuTimeEnabled(true);
+            allocationBean = (bean instanceof com.sun.management.ThreadMXBean &&
+                    ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+                    ? (com.sun.management.ThreadMXBean) bean : null;
+            if (allocationBean != null && !allocationBean.isThreadAllocatedMemoryEnabled())
+                allocationBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threadBean = null;
+            allocationBean = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return reportFile != null;
+    }
+
+    /** Start a phase for a compilation unit on the current thread. */
+    public void start(Phase phase, JavaFileObject file) {
+        if (reportFile == null)
+            return;
+        Deque<Frame> stack = frames.get();
+        Frame outer = stack.peek();
+        Frame frame = new Frame(phase, file);
+        sample(frame.mark);
+        if (outer != null)
+            outer.charge(frame.mark);
+        stack.push(frame);
+    }
+
+    /** End the phase most recently started on the current thread. */
+    public void end() {
+        if (reportFile == null)
+            return;
+        Deque<Frame> stack = frames.get();
+        Frame frame = stack.pop();
+        long[] now = new long[3];
+        sample(now);
+        frame.charge(now);
+        Frame outer = stack.peek();
+        if (outer != null)
+            System.arraycopy(now, 0, outer.mark, 0, now.length);
+        record(frame);
+    }
+
+    private void sample(long[] values) {
+        values[WALL] = System.nanoTime();
+        values[CPU] = (threadBean != null) ? threadBean.getCurrentThreadCpuTime() : 0;
+        values[ALLOCATED] = (allocationBean != null)
+                ? allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId())
+                : 0;
+    }
+
+    private void record(Frame frame) {
+        String name = (frame.file == null) ? "" : frame.file.getName();
+        long[][] unit = totals.computeIfAbsent(name, n -> new long[Phase.values().length][4]);
+        long[] row = unit[frame.phase.ordinal()];
+        synchronized (row) {
+            row[WALL] += frame.self[WALL];
+            row[CPU] += frame.self[CPU];
+            row[ALLOCATED] += frame.self[ALLOCATED];
+            row[COUNT]++;
+        }
+    }
+
+    /** A phase running on some thread, with the cost charged to it so far. */
+    private static class Frame {
+        final Phase phase;
+        final JavaFileObject file;
+        /** The measures when the phase was last resumed. */
+        final long[] mark = new long[3];
+        /** The cost of the phase itself, excluding nested phases. */
+        final long[] self = new long[3];
+
+        Frame(Phase phase, JavaFileObject file) {
+            this.phase = phase;
+            this.file = file;
+        }
+
+        void charge(long[] now) {
+            for (int i = 0; i < self.length; i++) {
+                self[i] += now[i] - mark[i];
+                mark[i] = now[i];
+            }
+        }
+    }
+
+    /** Write the report, if profiling is enabled. Failure to write the report
+     *  is reported as a warning.
+     */
+    public void writeReport() {
+        if (reportFile == null || totals.isEmpty())
+            return;
+        Path path = Paths.get(reportFile);
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            if (reportFile.toLowerCase(Locale.ROOT).endsWith(".csv"))
+                writeCsv(out);
+            else
+                writeJson(out);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warning("profile.cant.write", reportFile, e.getLocalizedMessage());
+        }
+    }
+
+    /** The compilation units, most expensive first. */
+    private List<String> sortedUnits() {
+        List<String> units = new ArrayList<>(totals.keySet());
+        units.sort(Comparator.comparingLong((String n) -> -sum(totals.get(n), WALL))
+                             .thenComparing(Comparator.naturalOrder()));
+        return units;
+    }
+
+    private long[][] phaseTotals() {
+        long[][] result = new long[Phase.values().length][4];
+        for (long[][] unit : totals.values()) {
+            for (int p = 0; p < unit.length; p++) {
+                for (int i = 0; i < 4; i++)
+                    result[p][i] += unit[p][i];
+            }
+        }
+        return result;
+    }
+
+    private static long sum(long[][] unit, int measure) {
+        long total = 0;
+        for (long[] row : unit)
+            total += row[measure];
+        return total;
+    }
+
+    private long value(long[] row, int measure) {
+        if (measure == CPU && threadBean == null || measure == ALLOCATED && allocationBean == null)
+            return -1;
+        return row[measure];
+    }
+
+    private void writeCsv(Writer out) throws IOException {
+        out.write("file,phase,count,wall_ns,cpu_ns,allocated_bytes\n");
+        long[][] all = phaseTotals();
+        for (Phase p : Phase.values())
+            writeCsvRow(out, "*", p, all[p.ordinal()]);
+        for (String unit : sortedUnits()) {
+            long[][] rows = totals.get(unit);
+            for (Phase p : Phase.values())
+                writeCsvRow(out, unit, p, rows[p.ordinal()]);
+        }
+    }
+
+    private void writeCsvRow(Writer out, String unit, Phase p, long[] row) throws IOException {
+        if (row[COUNT] == 0)
+            return;
+        boolean quote = unit.indexOf(',') >= 0 || unit.indexOf('"') >= 0;
+        out.write(quote ? '"' + unit.replace("\"", "\"\"") + '"' : unit);
+        out.write(',' + p.name + ',' + row[COUNT] + ',' + value(row, WALL) + ','
+                + value(row, CPU) + ',' + value(row, ALLOCATED) + '\n');
+    }
+
+    private void writeJson(Writer out) throws IOException {
+        out.write("{\n  \"phases\": ");
+        writeJsonPhases(out, phaseTotals(), "  ");
+        out.write(",\n  \"files\": [");
+        String sep = "\n";
+        for (String unit : sortedUnits()) {
+            out.write(sep + "    {\"file\": " + jsonString(unit) + ", \"phases\": ");
+            writeJsonPhases(out, totals.get(unit), "      ");
+            out.write("}");
+            sep = ",\n";
+        }
+        out.write("\n  ]\n}\n");
+    }
+
+    private void writeJsonPhases(Writer out, long[][] rows, String indent) throws IOException {
+        out.write("{");
+        String sep = "\n";
+        for (Phase p : Phase.values()) {
+            long[] row = rows[p.ordinal()];
+            if (row[COUNT] == 0)
+                continue;
+            out.write(sep + indent + "  " + jsonString(p.name) + ": {\"count\": " + row[COUNT]
+                    + ", \"wallNanos\": " + value(row, WALL)
+                    + ", \"cpuNanos\": " + value(row, CPU)
+                    + ", \"allocatedBytes\": " + value(row, ALLOCATED) + "}");
+            sep = ",\n";
+        }
+        out.write("\n" + indent + "}");
+    }
+
+    private static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20)
+                        sb.append(String.format("\\u%04x", (int) c));
+                    else
+                        sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -81,6 +81,18 @@ public class Position {
         return lineMap;
     }
 
+    /** Create a line map, without tab expansion, from the start positions
+     *  of the lines of a source, which have already been found by a scan of
+     *  the source.
+     *
+     * @param   startPositions  The position of the first character of each line
+     */
+    public static LineMap makeLineMap(int[] startPositions) {
+        LineMapImpl lineMap = new LineMapImpl();
+        lineMap.startPosition = startPositions;
+        return lineMap;
+    }
+
     /** Encode line and column numbers in an integer as:
      *  {@code line-number << LINESHIFT + column-number }.
      *  {@link Position#NOPOS} represents an undefined position.
@@ -144,6 +144,12 @@ public class SharedNameTable extends com.flint.tools.flintc.util.Name.Table {
         return n;
     }
 
+    @Override
+    public String footprint() {
+        return String.format("%d bytes in a shared array of %d bytes, %d hash buckets",
+                nc, bytes.length, hashes.length);
+    }
+
     @Override
     public void dispose() {
         dispose(this);
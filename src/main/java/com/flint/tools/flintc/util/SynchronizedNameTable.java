@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package com.flint.tools.flintc.util;
+
+/**
+ * Implementation of Name.Table that may be used by several threads at
+ * once, for example when source files are parsed concurrently. Each name
+ * is stored in its own array, as in UnsharedNameTable, so that the bytes
+ * of a name never move once the name has been published; lookups and
+ * insertions are serialized on the table.
+ *
+ *  <p><b>This is NOT part of any supported API.
+ *  If you write code that depends on this, you do so at your own risk.
+ *  This code and its internal interfaces are subject to change or
+ *  deletion without notice.</b>
+ */
+public class SynchronizedNameTable extends UnsharedNameTable {
+    static public Name.Table create(Names names) {
+        return new SynchronizedNameTable(names);
+    }
+
+    public SynchronizedNameTable(Names names) {
+        super(names);
+    }
+
+    @Override
+    public synchronized Name fromUtf(byte[] cs, int start, int len) {
+        return super.fromUtf(cs, start, len);
+    }
+
+    @Override
+    public synchronized void dispose() {
+        super.dispose();
+    }
+}
@@ -75,6 +75,10 @@ public class Warner {
                 hasNonSilentLint(lint);
     }
 
+    public boolean hasAnyLint() {
+        return !nonSilentLintSet.isEmpty() || !silentLintSet.isEmpty();
+    }
+
     public void clear() {
         nonSilentLintSet.clear();
         silentLintSet.clear();
@@ -0,0 +1,142 @@
+package org.mike;
+
+import com.flint.tools.flintc.api.JavacTaskImpl;
+import com.flint.tools.flintc.api.JavacTool;
+import com.flint.tools.flintc.comp.AttrContext;
+import com.flint.tools.flintc.comp.Env;
+import com.flint.tools.flintc.comp.Flow;
+import com.flint.tools.flintc.comp.Todo;
+import com.flint.tools.flintc.main.JavaCompiler;
+import com.flint.tools.flintc.tree.TreeMaker;
+import com.flint.tools.flintc.util.Context;
+import com.flint.tools.flintc.util.Log;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * Times definite assignment on a generated class with many blank final
+ * fields and one very large method, the shape of generated parsers, with
+ * and without -XDpoolFlowBits. The class is attributed once per mode and
+ * flow analysis is then repeated on it, so that only Flow is measured.
+ *
+ * usage: FlowBenchmark [locals [fields [rounds]]] [compiler options]
+ */
+public class FlowBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int[] sizes = { 4000, 1000, 20 };
+		int n = 0;
+		while (n < args.length && n < sizes.length && args[n].matches("\\d+")) {
+			sizes[n] = Integer.parseInt(args[n]);
+			n++;
+		}
+		List<String> options = Arrays.asList(args).subList(n, args.length);
+		int locals = sizes[0];
+		int fields = sizes[1];
+		int rounds = sizes[2];
+
+		String source = generate(locals, fields);
+		System.out.printf("%d locals, %d fields, %d lines%n",
+				locals, fields, source.split("\n").length);
+
+		for (int pass = 0; pass < 3; pass++) {
+			run("plain", source, rounds, options);
+			List<String> pooled = new ArrayList<>(options);
+			pooled.add("-XDpoolFlowBits");
+			run("pooled", source, rounds, pooled);
+		}
+	}
+
+	static void run(String kind, String source, int rounds, List<String> options) {
+		JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///Generated.java"), JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+		JavacTaskImpl task = (JavacTaskImpl) JavacTool.create().getTask(null, null, null, options, null, Arrays.asList(file));
+		task.parse();
+		task.enter();
+		Context context = task.getContext();
+		List<Env<AttrContext>> envs = new ArrayList<>(JavaCompiler.instance(context).attribute(Todo.instance(context)));
+		Flow flow = Flow.instance(context);
+		TreeMaker make = TreeMaker.instance(context);
+		Log log = Log.instance(context);
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long tid = Thread.currentThread().getId();
+		long a0 = threads.getThreadAllocatedBytes(tid);
+		long t0 = System.nanoTime();
+		for (int r = 0; r < rounds; r++) {
+			for (Env<AttrContext> env : envs) {
+				flow.analyzeTree(env, make.forToplevel(env.toplevel));
+			}
+		}
+		long t1 = System.nanoTime();
+		long a1 = threads.getThreadAllocatedBytes(tid);
+		System.out.printf("%-7s flow %7.2f ms/round, %8.2f MB/round, %d errors%n",
+				kind, (t1 - t0) / 1e6 / rounds, (a1 - a0) / 1048576.0 / rounds, log.nerrors);
+	}
+
+	/** A class whose constructor assigns the blank finals on every path and
+	 *  whose method declares the locals in blocks of branches, loops, trys,
+	 *  switches and conditions, each of which copies the DA/DU sets. */
+	static String generate(int locals, int fields) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("class Generated {\n");
+		for (int i = 0; i < fields; i++) {
+			sb.append("    final int f").append(i).append(";\n");
+		}
+		sb.append("    Generated(int n) {\n");
+		for (int i = 0; i < fields; i++) {
+			sb.append("        if (n > ").append(i).append(") f").append(i).append(" = n; else f")
+					.append(i).append(" = -n;\n");
+		}
+		sb.append("    }\n");
+		sb.append("    int run(int n, boolean b) {\n");
+		sb.append("        int sum = 0;\n");
+		for (int i = 0; i < locals; i++) {
+			String v = "v" + i;
+			sb.append("        int ").append(v).append(";\n");
+			switch (i % 6) {
+			case 0:
+				sb.append("        if (n > ").append(i).append(") { ").append(v).append(" = n; } else { ")
+						.append(v).append(" = ").append(i).append("; }\n");
+				break;
+			case 1:
+				sb.append("        ").append(v).append(" = 0;\n");
+				sb.append("        for (int i = 0; i < n; i++) { if (i == ").append(i).append(") break; if (b) continue; ")
+						.append(v).append(" += i; }\n");
+				break;
+			case 2:
+				sb.append("        try { ").append(v).append(" = n / ").append(i).append("; } catch (ArithmeticException e) { ")
+						.append(v).append(" = 0; } finally { sum++; }\n");
+				break;
+			case 3:
+				sb.append("        switch (n) { case ").append(i).append(": ").append(v).append(" = 1; break; default: ")
+						.append(v).append(" = 2; }\n");
+				break;
+			case 4:
+				sb.append("        if (b && (").append(v).append(" = n) > 0 || !b && (").append(v).append(" = -n) < 0) { sum += ")
+						.append(v).append("; } else { ").append(v).append(" = 0; }\n");
+				break;
+			default:
+				sb.append("        ").append(v).append(" = 0;\n");
+				sb.append("        while (").append(v).append(" < n) { if (").append(v).append(" == ").append(i)
+						.append(") break; ").append(v).append("++; }\n");
+			}
+			sb.append("        sum += ").append(v).append(";\n");
+		}
+		sb.append("        return sum;\n");
+		sb.append("    }\n");
+		sb.append("}\n");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,112 @@
+package org.mike;
+
+import com.flint.tools.flintc.util.ConcurrentNameTable;
+import com.flint.tools.flintc.util.Context;
+import com.flint.tools.flintc.util.Name;
+import com.flint.tools.flintc.util.Names;
+import com.flint.tools.flintc.util.SynchronizedNameTable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+
+/**
+ * Measures how the thread-safe name tables behave when several threads
+ * intern the same identifiers at once, as the parser threads do with
+ * -XDparallelParse.
+ *
+ * usage: NameTableBenchmark [threads [names [rounds]]]
+ */
+public class NameTableBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int count = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+		byte[][] words = words(count);
+		Names names = Names.instance(new Context());
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			// warm up once, then measure
+			run("synchronized", SynchronizedNameTable::new, names, words, threads, rounds);
+			run("concurrent", ConcurrentNameTable::new, names, words, threads, rounds);
+			run("synchronized", SynchronizedNameTable::new, names, words, threads, rounds);
+			run("concurrent", ConcurrentNameTable::new, names, words, threads, rounds);
+		}
+	}
+
+	static void run(String kind, Function<Names, Name.Table> factory, Names names,
+			byte[][] words, int threads, int rounds) throws Exception {
+		Name.Table table = factory.apply(names);
+		Name[][] results = new Name[threads][words.length];
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			Name[] result = results[t];
+			int[] order = shuffle(words.length, t);
+			workers[t] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int r = 0; r < rounds; r++) {
+					for (int i : order) {
+						result[i] = table.fromUtf(words[i], 0, words[i].length);
+					}
+				}
+			});
+			workers[t].start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Thread w : workers) {
+			w.join();
+		}
+		long elapsed = System.nanoTime() - begin;
+
+		// every thread must have seen the very same Name for every word
+		for (int t = 1; t < threads; t++) {
+			for (int i = 0; i < words.length; i++) {
+				if (results[t][i] != results[0][i]) {
+					throw new AssertionError(kind + ": two names for " + results[0][i]);
+				}
+			}
+		}
+		long ops = (long) threads * rounds * words.length;
+		System.out.printf("%-13s threads=%-3d %8.1f ns/op %10.0f ops/ms%n",
+				kind, threads, (double) elapsed / ops, ops / (elapsed / 1e6));
+		table.dispose();
+	}
+
+	static byte[][] words(int count) {
+		Random random = new Random(42);
+		byte[][] words = new byte[count][];
+		for (int i = 0; i < count; i++) {
+			StringBuilder sb = new StringBuilder();
+			int len = 3 + random.nextInt(12);
+			for (int j = 0; j < len; j++) {
+				sb.append((char) ('a' + random.nextInt(26)));
+			}
+			sb.append(i);
+			words[i] = sb.toString().getBytes(StandardCharsets.UTF_8);
+		}
+		return words;
+	}
+
+	static int[] shuffle(int n, long seed) {
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		Random random = new Random(seed);
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = order[i];
+			order[i] = order[j];
+			order[j] = tmp;
+		}
+		return order;
+	}
+}
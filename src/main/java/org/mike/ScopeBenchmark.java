@@ -0,0 +1,127 @@
+package org.mike;
+
+import com.flint.tools.flintc.code.Scope.WriteableScope;
+import com.flint.tools.flintc.code.Symbol;
+import com.flint.tools.flintc.code.Symbol.VarSymbol;
+import com.flint.tools.flintc.code.Symtab;
+import com.flint.tools.flintc.file.JavacFileManager;
+import com.flint.tools.flintc.util.Context;
+import com.flint.tools.flintc.util.Name;
+import com.flint.tools.flintc.util.Names;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the chained scope entries of ScopeImpl with the flat tables
+ * selected by -XDflatScopes, on a class with many members, on lookups that
+ * miss, and on the dup/enter/leave pattern of nested blocks. Both
+ * implementations must give the same answers.
+ *
+ * usage: ScopeBenchmark [members [rounds]]
+ */
+public class ScopeBenchmark {
+
+	public static void main(String[] args) {
+		int members = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+		Context context = new Context();
+		JavacFileManager.preRegister(context);
+		Names names = Names.instance(context);
+		Symtab syms = Symtab.instance(context);
+
+		Name[] present = new Name[members];
+		Name[] absent = new Name[members];
+		for (int i = 0; i < members; i++) {
+			present[i] = names.fromString("member" + i);
+			absent[i] = names.fromString("absent" + i);
+		}
+		Name[] locals = new Name[8];
+		for (int i = 0; i < locals.length; i++) {
+			locals[i] = names.fromString("local" + i);
+		}
+
+		String expected = null;
+		for (int pass = 0; pass < 3; pass++) {
+			for (boolean flat : new boolean[] { false, true }) {
+				WriteableScope.useFlatScopes(flat);
+				String kind = flat ? "flat" : "chained";
+
+				long t0 = System.nanoTime();
+				WriteableScope scope = null;
+				for (int r = 0; r < rounds / 10 + 1; r++) {
+					scope = WriteableScope.create(syms.noSymbol);
+					for (Name n : present) {
+						scope.enter(new VarSymbol(0, n, syms.intType, syms.noSymbol));
+					}
+				}
+				long t1 = System.nanoTime();
+
+				int found = 0;
+				for (int r = 0; r < rounds; r++) {
+					for (Name n : present) {
+						if (scope.findFirst(n) != null) found++;
+					}
+				}
+				long t2 = System.nanoTime();
+
+				int missed = 0;
+				for (int r = 0; r < rounds; r++) {
+					for (Name n : absent) {
+						if (scope.findFirst(n) == null) missed++;
+					}
+				}
+				long t3 = System.nanoTime();
+
+				int nested = 0;
+				for (int r = 0; r < rounds; r++) {
+					for (int i = 0; i < members / 10; i++) {
+						WriteableScope block = scope.dup();
+						for (Name n : locals) {
+							block.enter(new VarSymbol(0, n, syms.intType, syms.noSymbol));
+						}
+						if (block.findFirst(locals[i % locals.length]) != null) nested++;
+						if (block.findFirst(present[i]) != null) nested++;
+						block.leave();
+					}
+				}
+				long t4 = System.nanoTime();
+
+				String result = check(scope, present, locals, syms) + " " + found + " " + missed + " " + nested;
+				if (expected == null) {
+					expected = result;
+				} else if (!expected.equals(result)) {
+					throw new AssertionError(kind + ": " + result + " != " + expected);
+				}
+				System.out.printf("%-8s enter %7.1f ms  hits %7.1f ms  misses %7.1f ms  nested %7.1f ms%n",
+						kind, (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6, (t4 - t3) / 1e6);
+			}
+		}
+	}
+
+	/** Exercise shadowing, removal and unshared copies, and describe the result. */
+	static String check(WriteableScope scope, Name[] present, Name[] locals, Symtab syms) {
+		StringBuilder sb = new StringBuilder();
+		WriteableScope block = scope.dup();
+		VarSymbol shadow = new VarSymbol(0, present[0], syms.intType, syms.noSymbol);
+		block.enter(shadow);
+		WriteableScope copy = block.dupUnshared();
+		copy.enter(new VarSymbol(0, locals[0], syms.intType, syms.noSymbol));
+		sb.append(block.findFirst(present[0]) == shadow);
+		sb.append(copy.findFirst(present[0]) == shadow);
+		sb.append(block.findFirst(locals[0]) == null);
+		List<Symbol> all = new ArrayList<>();
+		copy.getSymbols().forEach(all::add);
+		sb.append(',').append(all.size());
+		all.clear();
+		block.getSymbolsByName(present[0]).forEach(all::add);
+		sb.append(',').append(all.size());
+		block.remove(shadow);
+		sb.append(block.findFirst(present[0]) != shadow);
+		sb.append(block.isEmpty());
+		block.leave();
+		sb.append(scope.findFirst(present[0]) != null);
+		return sb.toString();
+	}
+}
@@ -0,0 +1,108 @@
+package org.mike;
+
+import com.flint.source.util.JavacTask;
+import com.flint.tools.flintc.api.BasicJavacTask;
+import com.flint.tools.flintc.api.JavacTool;
+import com.flint.tools.flintc.util.Caches;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * Takes a census of the type objects left on the heap after attributing a
+ * set of sources, once as is and once with -XDinternTypes, so that the
+ * savings of the type table can be measured. The census is the class
+ * histogram of a full GC, taken while the compiler is still reachable.
+ *
+ * usage: TypeCensus [compiler options] files... | @argfile
+ */
+public class TypeCensus {
+
+	public static void main(String[] args) throws Exception {
+		List<String> options = new ArrayList<>();
+		List<File> files = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.startsWith("@")) {
+				for (String line : Files.readAllLines(Paths.get(arg.substring(1)))) {
+					if (!line.trim().isEmpty()) {
+						files.add(new File(line.trim()));
+					}
+				}
+			} else if (arg.endsWith(".java")) {
+				files.add(new File(arg));
+			} else {
+				options.add(arg);
+			}
+		}
+
+		for (int pass = 0; pass < 2; pass++) {
+			census("plain", options, files);
+			List<String> interned = new ArrayList<>(options);
+			interned.add("-XDinternTypes");
+			census("interned", interned, files);
+		}
+	}
+
+	static void census(String kind, List<String> options, List<File> files) throws Exception {
+		JavacTool tool = JavacTool.create();
+		StandardJavaFileManager fm = tool.getStandardFileManager(null, null, null);
+		Iterable<? extends JavaFileObject> units = fm.getJavaFileObjectsFromFiles(files);
+		JavacTask task = tool.getTask(null, fm, null, options, null, units);
+		long t0 = System.nanoTime();
+		task.analyze();
+		long t1 = System.nanoTime();
+
+		long count = 0;
+		long bytes = 0;
+		List<String> rows = new ArrayList<>();
+		for (String line : histogram()) {
+			// num: #instances #bytes class name
+			String[] cols = line.trim().split("\\s+");
+			if (cols.length < 4 || !isType(cols[3])) {
+				continue;
+			}
+			count += Long.parseLong(cols[1]);
+			bytes += Long.parseLong(cols[2]);
+			if (Long.parseLong(cols[1]) >= 100) {
+				rows.add(String.format("    %10s %12s  %s", cols[1], cols[2], cols[3]));
+			}
+		}
+		Runtime rt = Runtime.getRuntime();
+		System.out.printf("%s: analyze %.0f ms, heap %.1f MB, %d types in %.1f MB%n",
+				kind, (t1 - t0) / 1e6, (rt.totalMemory() - rt.freeMemory()) / 1048576.0,
+				count, bytes / 1048576.0);
+		rows.forEach(System.out::println);
+		for (Caches.Stats stats : Caches.instance(((BasicJavacTask) task).getContext()).statistics()) {
+			if (stats.name.equals("types")) {
+				System.out.println("    " + stats);
+			}
+		}
+		fm.close();
+	}
+
+	/** Class, array and wildcard types, including the anonymous subclasses
+	 *  made by type mappings and by the class reader. */
+	static boolean isType(String name) {
+		return name.startsWith("com.flint.tools.flintc.code.Type$")
+				|| name.matches("com\\.flint\\.tools\\.flintc\\.jvm\\.ClassReader\\$\\d+");
+	}
+
+	static List<String> histogram() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("com.sun.management:type=DiagnosticCommand");
+		String out = (String) server.invoke(name, "gcClassHistogram",
+				new Object[] { new String[0] }, new String[] { String[].class.getName() });
+		return Arrays.stream(out.split("\n")).collect(Collectors.toList());
+	}
+}